@@ -0,0 +1,266 @@
+package com.bluelinelabs.conductor.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates a FactoryRegistry implementation that is able to create every Controller and ControllerChangeHandler
+ * in the current compilation without reflection. The generated class can be registered at runtime with
+ * Conductor.setFactoryRegistry. Its name can be changed with the "conductor.factoryRegistry" processor option,
+ * which is useful when more than one module runs this processor.
+ */
+@SupportedOptions(FactoryRegistryProcessor.OPTION_CLASS_NAME)
+public final class FactoryRegistryProcessor extends AbstractProcessor {
+
+    static final String OPTION_CLASS_NAME = "conductor.factoryRegistry";
+
+    private static final String DEFAULT_CLASS_NAME = "com.bluelinelabs.conductor.generated.ConductorFactoryRegistry";
+    private static final String CONTROLLER_CLASS = "com.bluelinelabs.conductor.Controller";
+    private static final String CHANGE_HANDLER_CLASS = "com.bluelinelabs.conductor.ControllerChangeHandler";
+    private static final String BUNDLE_CLASS = "android.os.Bundle";
+
+    // Controller class name -> whether or not it should be created with its Bundle constructor
+    private final Map<String, Boolean> mControllers = new TreeMap<>();
+    private final Set<String> mChangeHandlers = new TreeSet<>();
+    // Classes with type parameters, which need to be created with the diamond operator
+    private final Set<String> mGenericTypes = new TreeSet<>();
+    private boolean mRegistryWritten;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement controllerType = processingEnv.getElementUtils().getTypeElement(CONTROLLER_CLASS);
+        TypeElement changeHandlerType = processingEnv.getElementUtils().getTypeElement(CHANGE_HANDLER_CLASS);
+
+        if (roundEnv.processingOver() || controllerType == null || changeHandlerType == null) {
+            return false;
+        }
+
+        for (Element element : roundEnv.getRootElements()) {
+            scan(element, controllerType.asType(), changeHandlerType.asType());
+        }
+
+        // Written in the first round that finds anything, rather than the last one, so the generated source is
+        // compiled along with everything else. Classes only generated by other processors in later rounds fall
+        // back to reflection.
+        if (!mRegistryWritten && (!mControllers.isEmpty() || !mChangeHandlers.isEmpty())) {
+            mRegistryWritten = true;
+            writeRegistry();
+        }
+
+        // Never claim any annotations, as this processor is only interested in type hierarchies.
+        return false;
+    }
+
+    private void scan(Element element, TypeMirror controllerType, TypeMirror changeHandlerType) {
+        if (element.getKind() != ElementKind.CLASS) {
+            return;
+        }
+
+        TypeElement typeElement = (TypeElement)element;
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror erasedType = types.erasure(typeElement.asType());
+
+        if (isInstantiable(typeElement)) {
+            boolean isController = types.isSubtype(erasedType, types.erasure(controllerType));
+            boolean isChangeHandler = !isController && types.isSubtype(erasedType, types.erasure(changeHandlerType));
+
+            if ((isController || isChangeHandler) && mRegistryWritten) {
+                processingEnv.getMessager().printMessage(Kind.NOTE, typeElement.getQualifiedName()
+                        + " was generated after the factory registry was written and will be created reflectively.", typeElement);
+            } else if (isController) {
+                addController(typeElement);
+            } else if (isChangeHandler) {
+                addChangeHandler(typeElement);
+            }
+        }
+
+        for (Element enclosed : typeElement.getEnclosedElements()) {
+            scan(enclosed, controllerType, changeHandlerType);
+        }
+    }
+
+    private void addController(TypeElement typeElement) {
+        boolean hasDefaultConstructor = false;
+        boolean hasBundleConstructor = false;
+
+        for (ExecutableElement constructor : publicConstructors(typeElement)) {
+            List<? extends VariableElement> parameters = constructor.getParameters();
+            if (parameters.isEmpty()) {
+                hasDefaultConstructor = true;
+            } else if (parameters.size() == 1 && BUNDLE_CLASS.equals(parameters.get(0).asType().toString())) {
+                hasBundleConstructor = true;
+            }
+        }
+
+        if (hasBundleConstructor || hasDefaultConstructor) {
+            mControllers.put(typeElement.getQualifiedName().toString(), hasBundleConstructor);
+            addIfGeneric(typeElement);
+        } else {
+            processingEnv.getMessager().printMessage(Kind.WARNING, "Controller " + typeElement.getQualifiedName()
+                    + " has no public default or Bundle constructor and will not be added to the factory registry.", typeElement);
+        }
+    }
+
+    private void addChangeHandler(TypeElement typeElement) {
+        for (ExecutableElement constructor : publicConstructors(typeElement)) {
+            if (constructor.getParameters().isEmpty()) {
+                mChangeHandlers.add(typeElement.getQualifiedName().toString());
+                addIfGeneric(typeElement);
+                return;
+            }
+        }
+    }
+
+    private void addIfGeneric(TypeElement typeElement) {
+        if (!typeElement.getTypeParameters().isEmpty()) {
+            mGenericTypes.add(typeElement.getQualifiedName().toString());
+        }
+    }
+
+    private String typeArguments(String className) {
+        return mGenericTypes.contains(className) ? "<>" : "";
+    }
+
+    private static List<ExecutableElement> publicConstructors(TypeElement typeElement) {
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(typeElement.getEnclosedElements());
+        for (int i = constructors.size() - 1; i >= 0; i--) {
+            if (!constructors.get(i).getModifiers().contains(Modifier.PUBLIC)) {
+                constructors.remove(i);
+            }
+        }
+        return constructors;
+    }
+
+    private static boolean isInstantiable(TypeElement typeElement) {
+        Set<Modifier> modifiers = typeElement.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+
+        Element enclosing = typeElement.getEnclosingElement();
+        if (enclosing.getKind() == ElementKind.PACKAGE) {
+            return true;
+        }
+
+        // Nested classes must be static and reachable from the generated registry's package.
+        return modifiers.contains(Modifier.STATIC) && enclosing instanceof TypeElement && isReachable((TypeElement)enclosing);
+    }
+
+    private static boolean isReachable(TypeElement typeElement) {
+        if (!typeElement.getModifiers().contains(Modifier.PUBLIC)) {
+            return false;
+        }
+
+        Element enclosing = typeElement.getEnclosingElement();
+        return enclosing.getKind() == ElementKind.PACKAGE || (enclosing instanceof TypeElement && isReachable((TypeElement)enclosing));
+    }
+
+    private void writeRegistry() {
+        String className = processingEnv.getOptions().get(OPTION_CLASS_NAME);
+        if (className == null || className.isEmpty()) {
+            className = DEFAULT_CLASS_NAME;
+        }
+
+        int lastDot = className.lastIndexOf('.');
+        String packageName = lastDot > 0 ? className.substring(0, lastDot) : null;
+        String simpleName = className.substring(lastDot + 1);
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(className).openWriter()) {
+            writer.write(generateSource(packageName, simpleName));
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Unable to write " + className + ": " + e.getMessage());
+        }
+    }
+
+    private String generateSource(String packageName, String simpleName) {
+        StringBuilder builder = new StringBuilder();
+
+        if (packageName != null) {
+            builder.append("package ").append(packageName).append(";\n\n");
+        }
+
+        builder.append("import java.util.HashSet;\n")
+                .append("import java.util.Set;\n\n")
+                .append("/**\n")
+                .append(" * Generated by conductor-compiler. Do not modify.\n")
+                .append(" */\n")
+                .append("public final class ").append(simpleName).append(" implements com.bluelinelabs.conductor.FactoryRegistry {\n\n")
+                .append("    private static final Set<Class<?>> CLASSES = new HashSet<>();\n\n")
+                .append("    static {\n");
+
+        for (String controller : mControllers.keySet()) {
+            builder.append("        CLASSES.add(").append(controller).append(".class);\n");
+        }
+        for (String changeHandler : mChangeHandlers) {
+            builder.append("        CLASSES.add(").append(changeHandler).append(".class);\n");
+        }
+
+        builder.append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public boolean hasFactory(Class<?> cls) {\n")
+                .append("        return CLASSES.contains(cls);\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public com.bluelinelabs.conductor.Controller newController(String className, android.os.Bundle args) {\n")
+                .append("        switch (className) {\n");
+
+        for (Map.Entry<String, Boolean> controller : mControllers.entrySet()) {
+            builder.append("            case \"").append(controller.getKey()).append("\":\n")
+                    .append("                return new ").append(controller.getKey()).append(typeArguments(controller.getKey()))
+                    .append(controller.getValue() ? "(args);\n" : "();\n");
+        }
+
+        builder.append("            default:\n")
+                .append("                return null;\n")
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public com.bluelinelabs.conductor.ControllerChangeHandler newChangeHandler(String className) {\n")
+                .append("        switch (className) {\n");
+
+        for (String changeHandler : mChangeHandlers) {
+            builder.append("            case \"").append(changeHandler).append("\":\n")
+                    .append("                return new ").append(changeHandler).append(typeArguments(changeHandler)).append("();\n");
+        }
+
+        builder.append("            default:\n")
+                .append("                return null;\n")
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("}\n");
+
+        return builder.toString();
+    }
+
+}
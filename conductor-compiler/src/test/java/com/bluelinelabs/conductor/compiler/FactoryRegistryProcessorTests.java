@@ -0,0 +1,130 @@
+package com.bluelinelabs.conductor.compiler;
+
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+public class FactoryRegistryProcessorTests {
+
+    // Minimal versions of the classes the processor and the generated registry refer to
+    private static final List<JavaFileObject> CONDUCTOR_SOURCES = Arrays.asList(
+            JavaFileObjects.forSourceLines("android.os.Bundle",
+                    "package android.os;",
+                    "public class Bundle { }"),
+            JavaFileObjects.forSourceLines("com.bluelinelabs.conductor.Controller",
+                    "package com.bluelinelabs.conductor;",
+                    "public abstract class Controller { }"),
+            JavaFileObjects.forSourceLines("com.bluelinelabs.conductor.ControllerChangeHandler",
+                    "package com.bluelinelabs.conductor;",
+                    "public abstract class ControllerChangeHandler { }"),
+            JavaFileObjects.forSourceLines("com.bluelinelabs.conductor.FactoryRegistry",
+                    "package com.bluelinelabs.conductor;",
+                    "public interface FactoryRegistry {",
+                    "    boolean hasFactory(Class<?> cls);",
+                    "    Controller newController(String className, android.os.Bundle args);",
+                    "    ControllerChangeHandler newChangeHandler(String className);",
+                    "}")
+    );
+
+    @Test
+    public void testGeneratesRegistry() {
+        List<JavaFileObject> sources = new ArrayList<>(CONDUCTOR_SOURCES);
+        sources.add(JavaFileObjects.forSourceLines("test.ArgsController",
+                "package test;",
+                "public class ArgsController extends com.bluelinelabs.conductor.Controller {",
+                "    public ArgsController(android.os.Bundle args) { }",
+                "}"));
+        sources.add(JavaFileObjects.forSourceLines("test.GenericController",
+                "package test;",
+                "public class GenericController<T extends CharSequence> extends com.bluelinelabs.conductor.Controller { }"));
+        sources.add(JavaFileObjects.forSourceLines("test.PrivateController",
+                "package test;",
+                "class PrivateController extends com.bluelinelabs.conductor.Controller { }"));
+        sources.add(JavaFileObjects.forSourceLines("test.Outer",
+                "package test;",
+                "public class Outer {",
+                "    public static class NestedChangeHandler<T> extends com.bluelinelabs.conductor.ControllerChangeHandler { }",
+                "}"));
+
+        JavaFileObject expected = JavaFileObjects.forSourceLines("com.bluelinelabs.conductor.generated.ConductorFactoryRegistry",
+                "package com.bluelinelabs.conductor.generated;",
+                "",
+                "import java.util.HashSet;",
+                "import java.util.Set;",
+                "",
+                "public final class ConductorFactoryRegistry implements com.bluelinelabs.conductor.FactoryRegistry {",
+                "",
+                "    private static final Set<Class<?>> CLASSES = new HashSet<>();",
+                "",
+                "    static {",
+                "        CLASSES.add(test.ArgsController.class);",
+                "        CLASSES.add(test.GenericController.class);",
+                "        CLASSES.add(test.Outer.NestedChangeHandler.class);",
+                "    }",
+                "",
+                "    @Override",
+                "    public boolean hasFactory(Class<?> cls) {",
+                "        return CLASSES.contains(cls);",
+                "    }",
+                "",
+                "    @Override",
+                "    public com.bluelinelabs.conductor.Controller newController(String className, android.os.Bundle args) {",
+                "        switch (className) {",
+                "            case \"test.ArgsController\":",
+                "                return new test.ArgsController(args);",
+                "            case \"test.GenericController\":",
+                "                return new test.GenericController<>();",
+                "            default:",
+                "                return null;",
+                "        }",
+                "    }",
+                "",
+                "    @Override",
+                "    public com.bluelinelabs.conductor.ControllerChangeHandler newChangeHandler(String className) {",
+                "        switch (className) {",
+                "            case \"test.Outer.NestedChangeHandler\":",
+                "                return new test.Outer.NestedChangeHandler<>();",
+                "            default:",
+                "                return null;",
+                "        }",
+                "    }",
+                "",
+                "}");
+
+        // Neither the registry being written too late nor raw generic types may cause warnings in consumer builds
+        assertAbout(javaSources())
+                .that(sources)
+                .withCompilerOptions("-Xlint:all")
+                .processedWith(new FactoryRegistryProcessor())
+                .compilesWithoutWarnings()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void testCustomClassName() {
+        List<JavaFileObject> sources = new ArrayList<>(CONDUCTOR_SOURCES);
+        sources.add(JavaFileObjects.forSourceLines("test.SimpleController",
+                "package test;",
+                "public class SimpleController extends com.bluelinelabs.conductor.Controller { }"));
+
+        assertAbout(javaSources())
+                .that(sources)
+                .withCompilerOptions("-A" + FactoryRegistryProcessor.OPTION_CLASS_NAME + "=test.TestFactoryRegistry")
+                .processedWith(new FactoryRegistryProcessor())
+                .compilesWithoutWarnings()
+                .and()
+                .generatesFileNamed(StandardLocation.SOURCE_OUTPUT, "test", "TestFactoryRegistry.java");
+    }
+
+}
@@ -1,32 +1,58 @@
 package com.bluelinelabs.conductor;
 
 import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.view.View;
+
+import com.bluelinelabs.conductor.internal.CompactStateParceler;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 class Backstack implements Iterable<RouterTransaction> {
 
     private static final String KEY_ENTRIES = "Backstack.entries";
+    private static final String KEY_COMPACT_ENTRIES = "Backstack.compactEntries";
+    private static final String KEY_LAZY_RESTORE = "Backstack.lazyRestore";
 
     private final ArrayDeque<RouterTransaction> mBackStack = new ArrayDeque<>();
+    private final Map<String, Controller> mInstanceIdIndex = new HashMap<>();
+    private final Map<String, RouterTransaction> mTagIndex = new HashMap<>();
+
+    // Entries that were lazily restored are kept in their saved form beneath all live transactions until needed.
+    private final ArrayDeque<Bundle> mLazyEntries = new ArrayDeque<>();
+    private final Map<String, Bundle> mLazyInstanceIdIndex = new HashMap<>();
+    private final Map<String, Bundle> mLazyTagIndex = new HashMap<>();
+    private boolean mLazyRestoreEnabled;
+    private OnTransactionRestoredListener mOnTransactionRestoredListener;
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     public boolean isEmpty() {
-        return mBackStack.isEmpty();
+        return mBackStack.isEmpty() && mLazyEntries.isEmpty();
     }
 
     public int size() {
-        return mBackStack.size();
+        return mBackStack.size() + mLazyEntries.size();
     }
 
     public RouterTransaction root() {
+        restoreLazyEntries();
         return mBackStack.size() > 0 ? mBackStack.getLast() : null;
     }
 
+    public void setLazyRestoreEnabled(boolean lazyRestoreEnabled) {
+        mLazyRestoreEnabled = lazyRestoreEnabled;
+    }
+
+    public void setOnTransactionRestoredListener(OnTransactionRestoredListener listener) {
+        mOnTransactionRestoredListener = listener;
+    }
+
     @Override
     public Iterator<RouterTransaction> iterator() {
         return mBackStack.iterator();
@@ -51,7 +77,11 @@ class Backstack implements Iterable<RouterTransaction> {
 
     public RouterTransaction pop() {
         RouterTransaction popped = mBackStack.pop();
-        popped.getController().destroy();
+        removeFromIndex(popped);
+
+        if (mBackStack.isEmpty()) {
+            restoreNextLazyEntry();
+        }
         return popped;
     }
 
@@ -59,15 +89,58 @@ class Backstack implements Iterable<RouterTransaction> {
         return mBackStack.peek();
     }
 
+    /**
+     * Returns the transaction just beneath the top one, restoring it first if it's still lazily restored.
+     */
+    public RouterTransaction peekBelowTop() {
+        if (mBackStack.size() == 1) {
+            restoreNextLazyEntry();
+        }
+
+        if (mBackStack.size() < 2) {
+            return null;
+        }
+
+        Iterator<RouterTransaction> iterator = mBackStack.iterator();
+        iterator.next();
+        return iterator.next();
+    }
+
     public void remove(RouterTransaction transaction) {
-        mBackStack.removeFirstOccurrence(transaction);
+        if (mBackStack.removeFirstOccurrence(transaction)) {
+            removeFromIndex(transaction);
+
+            if (mBackStack.isEmpty()) {
+                restoreNextLazyEntry();
+            }
+        }
     }
 
     public void push(RouterTransaction transaction) {
         mBackStack.push(transaction);
+        addToIndex(transaction);
+    }
+
+    /**
+     * Replaces the entire contents of this backstack without destroying any {@link Controller}s.
+     *
+     * @param backstack The new entries, ordered from root to top
+     */
+    public void setBackstack(@NonNull List<RouterTransaction> backstack) {
+        mBackStack.clear();
+        mInstanceIdIndex.clear();
+        mTagIndex.clear();
+        clearLazyEntries();
+
+        for (RouterTransaction transaction : backstack) {
+            push(transaction);
+        }
     }
 
     public List<RouterTransaction> popAll() {
+        // Lazily restored entries never had their Controllers created, so there is nothing to destroy.
+        clearLazyEntries();
+
         List<RouterTransaction> list = new ArrayList<>();
         while (!isEmpty()) {
             list.add(pop());
@@ -76,21 +149,286 @@ class Backstack implements Iterable<RouterTransaction> {
     }
 
     public void detachAndSaveInstanceState(Bundle outState) {
-        ArrayList<Bundle> entryBundles = new ArrayList<>(mBackStack.size());
+        ArrayList<Bundle> entryBundles = new ArrayList<>(size());
         for (RouterTransaction entry : mBackStack) {
             entryBundles.add(entry.detachAndSaveInstanceState());
         }
+        entryBundles.addAll(mLazyEntries);
 
-        outState.putParcelableArrayList(KEY_ENTRIES, entryBundles);
+        outState.putParcelable(KEY_COMPACT_ENTRIES, new CompactStateParceler(entryBundles));
+        outState.putBoolean(KEY_LAZY_RESTORE, mLazyRestoreEnabled);
+    }
+
+    /**
+     * Returns a copy of the state that was saved into the passed Bundle by {@link #detachAndSaveInstanceState(Bundle)}
+     * that only contains its top entry, or null if it doesn't contain any entries.
+     */
+    static Bundle copyTopEntryState(Bundle savedInstanceState) {
+        CompactStateParceler compactEntries = savedInstanceState.getParcelable(KEY_COMPACT_ENTRIES);
+        if (compactEntries == null || compactEntries.getBundles().isEmpty()) {
+            return null;
+        }
+
+        ArrayList<Bundle> topEntry = new ArrayList<>(1);
+        topEntry.add(compactEntries.getBundles().get(0));
+
+        Bundle state = new Bundle();
+        state.putParcelable(KEY_COMPACT_ENTRIES, new CompactStateParceler(topEntry));
+        state.putBoolean(KEY_LAZY_RESTORE, savedInstanceState.getBoolean(KEY_LAZY_RESTORE));
+        return state;
+    }
+
+    /**
+     * Measures the state that was saved into the passed Bundle by {@link #detachAndSaveInstanceState(Bundle)}.
+     */
+    public static StateSizeReport createStateSizeReport(Bundle savedInstanceState) {
+        CompactStateParceler compactEntries = savedInstanceState.getParcelable(KEY_COMPACT_ENTRIES);
+        List<StateSizeReport.ControllerSize> sizes = new ArrayList<>();
+
+        if (compactEntries != null) {
+            for (Bundle entryBundle : compactEntries.getBundles()) {
+                ControllerTransaction.measureSavedState(entryBundle, null, sizes);
+            }
+        }
+
+        return new StateSizeReport(StateSizeReport.sizeOf(compactEntries), sizes);
     }
 
     public void restoreInstanceState(Bundle savedInstanceState) {
-        ArrayList<Bundle> entryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
+        mLazyRestoreEnabled = savedInstanceState.getBoolean(KEY_LAZY_RESTORE);
+
+        ArrayList<Bundle> entryBundles;
+        CompactStateParceler compactEntries = savedInstanceState.getParcelable(KEY_COMPACT_ENTRIES);
+        if (compactEntries != null) {
+            entryBundles = compactEntries.getBundles();
+        } else {
+            // State saved by older versions
+            entryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
+        }
+
         if (entryBundles != null) {
-            Collections.reverse(entryBundles);
-            for (Bundle transactionBundle : entryBundles) {
-                mBackStack.push(new RouterTransaction(transactionBundle));
+            if (mLazyRestoreEnabled) {
+                restoreLazily(entryBundles);
+            } else {
+                Collections.reverse(entryBundles);
+                for (Bundle transactionBundle : entryBundles) {
+                    push(new RouterTransaction(transactionBundle));
+                }
+            }
+        }
+    }
+
+    public Controller getControllerWithInstanceId(String instanceId) {
+        Controller controller = mInstanceIdIndex.get(instanceId);
+        if (controller == null) {
+            Bundle lazyEntry = mLazyInstanceIdIndex.get(instanceId);
+            if (lazyEntry != null) {
+                restoreLazyEntriesThrough(lazyEntry);
+                controller = mInstanceIdIndex.get(instanceId);
+            }
+        }
+        return controller;
+    }
+
+    public RouterTransaction getTransactionWithTag(String tag) {
+        RouterTransaction transaction = mTagIndex.get(tag);
+        if (transaction == null) {
+            Bundle lazyEntry = mLazyTagIndex.get(tag);
+            if (lazyEntry != null) {
+                restoreLazyEntriesThrough(lazyEntry);
+                transaction = mTagIndex.get(tag);
+            }
+        }
+        return transaction;
+    }
+
+    /**
+     * Creates the transactions for all lazily restored entries.
+     */
+    public void restoreLazyEntries() {
+        while (!mLazyEntries.isEmpty()) {
+            restoreNextLazyEntry();
+        }
+    }
+
+    /**
+     * Converts the deepest entries into their saved form, the same way lazily restored entries are kept, until at
+     * most the passed number of live entries remain, then destroys their {@link Controller}s so that nothing
+     * bound to their lifecycles keeps them reachable. Entries will be restored as new instances on demand. Stops
+     * at the first entry whose {@link Controller} is attached, is about to be, or still has its view in a container.
+     *
+     * @return The number of entries that were hibernated
+     */
+    public int hibernate(int maxLiveEntries) {
+        int hibernated = 0;
+        while (mBackStack.size() > maxLiveEntries) {
+            RouterTransaction transaction = mBackStack.getLast();
+            Controller controller = transaction.controller;
+            View view = controller.getView();
+            if (controller.isAttached() || controller.getNeedsAttach() || controller.isBeingDestroyed() || (view != null && view.getParent() != null)) {
+                break;
             }
+
+            mBackStack.removeLast();
+            removeFromIndex(transaction);
+
+            controller.releaseDetachedViews();
+            addLazyEntry(transaction.detachAndSaveInstanceState(), true);
+            controller.destroy();
+            hibernated++;
+        }
+        return hibernated;
+    }
+
+    /**
+     * Adds a child {@link Controller} (and all of its descendants) to the instance ID index, as long as its
+     * parent is currently part of this backstack.
+     */
+    public void onChildControllerAdded(@NonNull Controller parent, @NonNull Controller child) {
+        if (mInstanceIdIndex.get(parent.getInstanceId()) == parent) {
+            addControllerToIndex(child);
         }
     }
+
+    public void onChildControllerRemoved(@NonNull Controller child) {
+        if (mInstanceIdIndex.get(child.getInstanceId()) == child) {
+            removeControllerFromIndex(child);
+        }
+    }
+
+    private void restoreLazily(List<Bundle> entryBundles) {
+        if (entryBundles.isEmpty()) {
+            return;
+        }
+
+        // Entries are ordered from top to root. The top needs to be created right away, as does anything that was
+        // still attached beneath it, since those will be rebound to the container.
+        int lastNeededIndex = 0;
+        for (int i = 0; i < entryBundles.size(); i++) {
+            if (ControllerTransaction.getNeedsAttach(entryBundles.get(i))) {
+                lastNeededIndex = i;
+            }
+        }
+
+        for (Bundle entryBundle : entryBundles) {
+            addLazyEntry(entryBundle, false);
+        }
+
+        restoreLazyEntriesThrough(entryBundles.get(lastNeededIndex));
+    }
+
+    private void addLazyEntry(Bundle entryBundle, boolean onTop) {
+        String tag = ControllerTransaction.getTag(entryBundle);
+        if (onTop) {
+            mLazyEntries.addFirst(entryBundle);
+            if (tag != null) {
+                mLazyTagIndex.put(tag, entryBundle);
+            }
+        } else {
+            mLazyEntries.addLast(entryBundle);
+            if (tag != null && !mLazyTagIndex.containsKey(tag)) {
+                mLazyTagIndex.put(tag, entryBundle);
+            }
+        }
+
+        List<String> instanceIds = new ArrayList<>();
+        ControllerTransaction.collectInstanceIds(entryBundle, instanceIds);
+        for (String instanceId : instanceIds) {
+            mLazyInstanceIdIndex.put(instanceId, entryBundle);
+        }
+    }
+
+    private void restoreLazyEntriesThrough(Bundle entryBundle) {
+        while (!mLazyEntries.isEmpty()) {
+            if (restoreNextLazyEntry() == entryBundle) {
+                break;
+            }
+        }
+    }
+
+    private Bundle restoreNextLazyEntry() {
+        Bundle entryBundle = mLazyEntries.pollFirst();
+        if (entryBundle == null) {
+            return null;
+        }
+
+        String tag = ControllerTransaction.getTag(entryBundle);
+        if (tag != null && mLazyTagIndex.get(tag) == entryBundle) {
+            mLazyTagIndex.remove(tag);
+            for (Bundle remaining : mLazyEntries) {
+                if (tag.equals(ControllerTransaction.getTag(remaining))) {
+                    mLazyTagIndex.put(tag, remaining);
+                    break;
+                }
+            }
+        }
+
+        List<String> instanceIds = new ArrayList<>();
+        ControllerTransaction.collectInstanceIds(entryBundle, instanceIds);
+        for (String instanceId : instanceIds) {
+            mLazyInstanceIdIndex.remove(instanceId);
+        }
+
+        // Restored entries always sit beneath every live transaction
+        RouterTransaction transaction = new RouterTransaction(entryBundle);
+        mBackStack.addLast(transaction);
+        if (transaction.tag != null && !mTagIndex.containsKey(transaction.tag)) {
+            mTagIndex.put(transaction.tag, transaction);
+        }
+        addControllerToIndex(transaction.controller);
+
+        if (mOnTransactionRestoredListener != null) {
+            mOnTransactionRestoredListener.onTransactionRestored(transaction);
+        }
+
+        return entryBundle;
+    }
+
+    private void clearLazyEntries() {
+        mLazyEntries.clear();
+        mLazyInstanceIdIndex.clear();
+        mLazyTagIndex.clear();
+    }
+
+    private void addToIndex(RouterTransaction transaction) {
+        if (transaction.tag != null) {
+            mTagIndex.put(transaction.tag, transaction);
+        }
+        addControllerToIndex(transaction.controller);
+    }
+
+    private void removeFromIndex(RouterTransaction transaction) {
+        if (transaction.tag != null && mTagIndex.get(transaction.tag) == transaction) {
+            mTagIndex.remove(transaction.tag);
+
+            // Tags aren't required to be unique, so fall back to the next highest transaction using the same one.
+            for (RouterTransaction remaining : mBackStack) {
+                if (transaction.tag.equals(remaining.tag)) {
+                    mTagIndex.put(remaining.tag, remaining);
+                    break;
+                }
+            }
+        }
+        removeControllerFromIndex(transaction.controller);
+    }
+
+    private void addControllerToIndex(Controller controller) {
+        mInstanceIdIndex.put(controller.getInstanceId(), controller);
+        for (Controller child : controller.getChildControllers()) {
+            addControllerToIndex(child);
+        }
+    }
+
+    private void removeControllerFromIndex(Controller controller) {
+        if (mInstanceIdIndex.get(controller.getInstanceId()) == controller) {
+            mInstanceIdIndex.remove(controller.getInstanceId());
+        }
+        for (Controller child : controller.getChildControllers()) {
+            removeControllerFromIndex(child);
+        }
+    }
+
+    interface OnTransactionRestoredListener {
+        void onTransactionRestored(@NonNull RouterTransaction transaction);
+    }
 }
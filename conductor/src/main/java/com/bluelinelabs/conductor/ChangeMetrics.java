@@ -0,0 +1,78 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Timing and smoothness measurements for a single change between {@link Controller}s, as reported to a
+ * {@link ChangeMetricsListener}. All durations are in nanoseconds.
+ */
+public class ChangeMetrics {
+
+    /** The expected time between frames, assuming a 60Hz display */
+    public static final long FRAME_INTERVAL_NANOS = 1000000000L / 60;
+
+    /** How long a change is watched before it's reported as incomplete */
+    public static final long MAX_RECORDING_NANOS = 10 * 1000000000L;
+
+    /** The class name of the {@link ControllerChangeHandler} that performed the change */
+    @NonNull public final String handlerClassName;
+
+    /** The class name of the {@link Controller} being shown, or null if there was none */
+    public final String toControllerClassName;
+
+    /** The class name of the {@link Controller} being removed, or null if there was none */
+    public final String fromControllerClassName;
+
+    public final boolean isPush;
+
+    /**
+     * False if the change hadn't completed within {@link #MAX_RECORDING_NANOS}, in which case only the frames up to
+     * that point were measured
+     */
+    public final boolean completed;
+
+    /** True if the "to" Controller's view had to be created for this change */
+    public final boolean viewCreated;
+
+    /** The time spent getting the "to" Controller's view, including {@link Controller#onCreateView} if it was called */
+    public final long createViewNanos;
+
+    /** The time from the start of the change until the first frame drawn after it started */
+    public final long firstFrameNanos;
+
+    /** The time from the start of the change until its handler reported it as completed, or until it was reported as incomplete */
+    public final long durationNanos;
+
+    /** The number of frames drawn while the change was running */
+    public final int frameCount;
+
+    /** The number of frames that took noticeably longer than {@link #FRAME_INTERVAL_NANOS} */
+    public final int slowFrameCount;
+
+    /** The number of frames that would have been drawn within the slow frames' time at the expected frame rate */
+    public final int droppedFrameCount;
+
+    ChangeMetrics(@NonNull String handlerClassName, String toControllerClassName, String fromControllerClassName, boolean isPush, boolean completed, boolean viewCreated, long createViewNanos, long firstFrameNanos, long durationNanos, int frameCount, int slowFrameCount, int droppedFrameCount) {
+        this.handlerClassName = handlerClassName;
+        this.toControllerClassName = toControllerClassName;
+        this.fromControllerClassName = fromControllerClassName;
+        this.isPush = isPush;
+        this.completed = completed;
+        this.viewCreated = viewCreated;
+        this.createViewNanos = createViewNanos;
+        this.firstFrameNanos = firstFrameNanos;
+        this.durationNanos = durationNanos;
+        this.frameCount = frameCount;
+        this.slowFrameCount = slowFrameCount;
+        this.droppedFrameCount = droppedFrameCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeMetrics{handler=" + handlerClassName + ", to=" + toControllerClassName + ", from=" + fromControllerClassName
+                + ", isPush=" + isPush + ", completed=" + completed + ", viewCreated=" + viewCreated + ", createViewNanos=" + createViewNanos
+                + ", firstFrameNanos=" + firstFrameNanos + ", durationNanos=" + durationNanos + ", frameCount=" + frameCount
+                + ", slowFrameCount=" + slowFrameCount + ", droppedFrameCount=" + droppedFrameCount + "}";
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link ChangeMetricsListener} that summarizes all reported {@link ChangeMetrics} per
+ * {@link ControllerChangeHandler} class and per {@link Controller} class, optionally forwarding each one to
+ * another listener, such as one that uploads them.
+ */
+public class ChangeMetricsAggregator implements ChangeMetricsListener {
+
+    private final ChangeMetricsListener mDelegate;
+    private final Map<String, Summary> mSummariesByHandlerClass = new HashMap<>();
+    private final Map<String, Summary> mSummariesByControllerClass = new HashMap<>();
+
+    public ChangeMetricsAggregator() {
+        this(null);
+    }
+
+    /**
+     * @param delegate A listener that every reported {@link ChangeMetrics} is forwarded to, or null
+     */
+    public ChangeMetricsAggregator(ChangeMetricsListener delegate) {
+        mDelegate = delegate;
+    }
+
+    @Override
+    public void onChangeMetrics(@NonNull ChangeMetrics metrics) {
+        getSummary(mSummariesByHandlerClass, metrics.handlerClassName).add(metrics);
+
+        if (metrics.toControllerClassName != null) {
+            getSummary(mSummariesByControllerClass, metrics.toControllerClassName).add(metrics);
+        }
+
+        if (mDelegate != null) {
+            mDelegate.onChangeMetrics(metrics);
+        }
+    }
+
+    /**
+     * Returns a copy of the summaries of all changes, keyed by the class name of the
+     * {@link ControllerChangeHandler} that performed them.
+     */
+    @NonNull
+    public Map<String, Summary> getSummariesByHandlerClass() {
+        return copy(mSummariesByHandlerClass);
+    }
+
+    /**
+     * Returns a copy of the summaries of all changes, keyed by the class name of the {@link Controller} being
+     * shown.
+     */
+    @NonNull
+    public Map<String, Summary> getSummariesByControllerClass() {
+        return copy(mSummariesByControllerClass);
+    }
+
+    public void reset() {
+        mSummariesByHandlerClass.clear();
+        mSummariesByControllerClass.clear();
+    }
+
+    private static Summary getSummary(Map<String, Summary> summaries, String className) {
+        Summary summary = summaries.get(className);
+        if (summary == null) {
+            summary = new Summary();
+            summaries.put(className, summary);
+        }
+        return summary;
+    }
+
+    private static Map<String, Summary> copy(Map<String, Summary> summaries) {
+        Map<String, Summary> copy = new HashMap<>();
+        for (Map.Entry<String, Summary> entry : summaries.entrySet()) {
+            copy.put(entry.getKey(), new Summary(entry.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * Totals of all {@link ChangeMetrics} reported for a single class. All durations are in nanoseconds.
+     */
+    public static class Summary {
+
+        private int mChangeCount;
+        private int mIncompleteChangeCount;
+        private int mCreatedViewCount;
+        private long mTotalCreateViewNanos;
+        private long mTotalFirstFrameNanos;
+        private long mMaxFirstFrameNanos;
+        private long mTotalDurationNanos;
+        private int mFrameCount;
+        private int mSlowFrameCount;
+        private int mDroppedFrameCount;
+
+        Summary() { }
+
+        Summary(@NonNull Summary other) {
+            mChangeCount = other.mChangeCount;
+            mIncompleteChangeCount = other.mIncompleteChangeCount;
+            mCreatedViewCount = other.mCreatedViewCount;
+            mTotalCreateViewNanos = other.mTotalCreateViewNanos;
+            mTotalFirstFrameNanos = other.mTotalFirstFrameNanos;
+            mMaxFirstFrameNanos = other.mMaxFirstFrameNanos;
+            mTotalDurationNanos = other.mTotalDurationNanos;
+            mFrameCount = other.mFrameCount;
+            mSlowFrameCount = other.mSlowFrameCount;
+            mDroppedFrameCount = other.mDroppedFrameCount;
+        }
+
+        void add(@NonNull ChangeMetrics metrics) {
+            mChangeCount++;
+            if (!metrics.completed) {
+                mIncompleteChangeCount++;
+            }
+            if (metrics.viewCreated) {
+                mCreatedViewCount++;
+                mTotalCreateViewNanos += metrics.createViewNanos;
+            }
+            mTotalFirstFrameNanos += metrics.firstFrameNanos;
+            mMaxFirstFrameNanos = Math.max(mMaxFirstFrameNanos, metrics.firstFrameNanos);
+            if (metrics.completed) {
+                mTotalDurationNanos += metrics.durationNanos;
+            }
+            mFrameCount += metrics.frameCount;
+            mSlowFrameCount += metrics.slowFrameCount;
+            mDroppedFrameCount += metrics.droppedFrameCount;
+        }
+
+        public int getChangeCount() {
+            return mChangeCount;
+        }
+
+        /**
+         * Returns the number of changes that hadn't completed within {@link ChangeMetrics#MAX_RECORDING_NANOS}.
+         */
+        public int getIncompleteChangeCount() {
+            return mIncompleteChangeCount;
+        }
+
+        /**
+         * Returns the average time spent creating views, counting only changes that had to create one.
+         */
+        public long getAverageCreateViewNanos() {
+            return mCreatedViewCount > 0 ? mTotalCreateViewNanos / mCreatedViewCount : 0;
+        }
+
+        public long getAverageFirstFrameNanos() {
+            return mChangeCount > 0 ? mTotalFirstFrameNanos / mChangeCount : 0;
+        }
+
+        public long getMaxFirstFrameNanos() {
+            return mMaxFirstFrameNanos;
+        }
+
+        /**
+         * Returns the average duration of the changes that completed.
+         */
+        public long getAverageDurationNanos() {
+            int completedChangeCount = mChangeCount - mIncompleteChangeCount;
+            return completedChangeCount > 0 ? mTotalDurationNanos / completedChangeCount : 0;
+        }
+
+        public int getFrameCount() {
+            return mFrameCount;
+        }
+
+        public int getSlowFrameCount() {
+            return mSlowFrameCount;
+        }
+
+        public int getDroppedFrameCount() {
+            return mDroppedFrameCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Summary{changeCount=" + mChangeCount + ", incompleteChangeCount=" + mIncompleteChangeCount + ", averageCreateViewNanos=" + getAverageCreateViewNanos()
+                    + ", averageFirstFrameNanos=" + getAverageFirstFrameNanos() + ", maxFirstFrameNanos=" + mMaxFirstFrameNanos
+                    + ", averageDurationNanos=" + getAverageDurationNanos() + ", frameCount=" + mFrameCount
+                    + ", slowFrameCount=" + mSlowFrameCount + ", droppedFrameCount=" + mDroppedFrameCount + "}";
+        }
+    }
+
+}
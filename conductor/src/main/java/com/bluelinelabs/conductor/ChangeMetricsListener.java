@@ -0,0 +1,13 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Receives {@link ChangeMetrics} for every change between {@link Controller}s once it has both completed and
+ * drawn its first frame. Listeners are registered with {@link Conductor#setChangeMetricsListener} and are
+ * called on the main thread. {@link ChangeMetricsAggregator} can be used to summarize metrics per
+ * {@link ControllerChangeHandler} and {@link Controller} class.
+ */
+public interface ChangeMetricsListener {
+    void onChangeMetrics(@NonNull ChangeMetrics metrics);
+}
@@ -0,0 +1,108 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+/**
+ * Measures a single change for {@link ChangeMetricsListener}s by watching every frame from the start of the change
+ * until it completes. Changes that haven't completed within {@link ChangeMetrics#MAX_RECORDING_NANOS} are reported
+ * as incomplete, so a change that never completes doesn't keep a frame callback posted forever.
+ */
+class ChangeMetricsRecorder implements Choreographer.FrameCallback {
+
+    // Frames taking more than one and a half intervals are considered slow
+    private static final long SLOW_FRAME_NANOS = ChangeMetrics.FRAME_INTERVAL_NANOS * 3 / 2;
+
+    private final ChangeMetricsListener mListener;
+    private final String mHandlerClassName;
+    private final String mToControllerClassName;
+    private final String mFromControllerClassName;
+    private final boolean mIsPush;
+    private final long mStartNanos;
+    private boolean mViewCreated;
+    private long mCreateViewNanos;
+    private long mFirstFrameNanos = -1;
+    private long mLastFrameTimeNanos;
+    private long mDurationNanos = -1;
+    private boolean mCompleted;
+    private int mFrameCount;
+    private int mSlowFrameCount;
+    private int mDroppedFrameCount;
+    private boolean mReported;
+
+    ChangeMetricsRecorder(@NonNull ChangeMetricsListener listener, @NonNull ControllerChangeHandler handler, Controller to, Controller from, boolean isPush, long startNanos) {
+        mListener = listener;
+        mHandlerClassName = handler.getClass().getName();
+        mToControllerClassName = to != null ? to.getClass().getName() : null;
+        mFromControllerClassName = from != null ? from.getClass().getName() : null;
+        mIsPush = isPush;
+        mStartNanos = startNanos;
+    }
+
+    void start() {
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    void onViewInflated(boolean viewCreated, long createViewNanos) {
+        mViewCreated = viewCreated;
+        mCreateViewNanos = createViewNanos;
+    }
+
+    /**
+     * Called when the change has completed. Metrics are reported now if a frame was already drawn, or otherwise
+     * along with the first frame.
+     */
+    void onChangeCompleted(long endNanos) {
+        if (mReported) {
+            return;
+        }
+
+        mDurationNanos = endNanos - mStartNanos;
+        mCompleted = true;
+
+        if (mFrameCount > 0) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            report();
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        onFrame(frameTimeNanos);
+
+        if (!mReported) {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    void onFrame(long frameTimeNanos) {
+        if (mFrameCount == 0) {
+            mFirstFrameNanos = Math.max(0, frameTimeNanos - mStartNanos);
+        } else {
+            long frameNanos = frameTimeNanos - mLastFrameTimeNanos;
+            if (frameNanos > SLOW_FRAME_NANOS) {
+                mSlowFrameCount++;
+                mDroppedFrameCount += (int)(frameNanos / ChangeMetrics.FRAME_INTERVAL_NANOS) - 1;
+            }
+        }
+
+        mLastFrameTimeNanos = frameTimeNanos;
+        mFrameCount++;
+
+        if (mDurationNanos >= 0) {
+            report();
+        } else if (frameTimeNanos - mStartNanos >= ChangeMetrics.MAX_RECORDING_NANOS) {
+            mDurationNanos = frameTimeNanos - mStartNanos;
+            report();
+        }
+    }
+
+    private void report() {
+        if (!mReported) {
+            mReported = true;
+            mListener.onChangeMetrics(new ChangeMetrics(mHandlerClassName, mToControllerClassName, mFromControllerClassName, mIsPush, mCompleted,
+                    mViewCreated, mCreateViewNanos, mFirstFrameNanos, mDurationNanos, mFrameCount, mSlowFrameCount, mDroppedFrameCount));
+        }
+    }
+
+}
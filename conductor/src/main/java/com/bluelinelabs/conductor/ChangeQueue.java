@@ -0,0 +1,136 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
+import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
+
+import java.util.ArrayDeque;
+
+/**
+ * Runs a {@link Router}'s changes one at a time. Changes requested while another one is running are queued, and
+ * consecutive queued changes are coalesced into one, so that pushing B, C and D in quick succession while A
+ * animates out results in a single change from B to D. The running change is asked to complete immediately
+ * whenever it's superseded.
+ */
+class ChangeQueue implements ControllerChangeListener, Runnable {
+
+    interface ChangeExecutor {
+        void executeChange(Controller to, Controller from, boolean isPush, @NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeListener completionListener);
+    }
+
+    private final ChangeExecutor mExecutor;
+    private final ArrayDeque<PendingChange> mPendingChanges = new ArrayDeque<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private ControllerChangeHandler mRunningChangeHandler;
+    private boolean mScheduled;
+
+    ChangeQueue(@NonNull ChangeExecutor executor) {
+        mExecutor = executor;
+    }
+
+    void enqueue(Controller to, Controller from, boolean isPush, ControllerChangeHandler changeHandler) {
+        // The running change is recognized by its handler, so it needs to be the one that's actually used
+        if (changeHandler == null) {
+            changeHandler = new SimpleSwapChangeHandler();
+        }
+
+        if (mRunningChangeHandler == null && mPendingChanges.isEmpty()) {
+            execute(new PendingChange(to, from, isPush, changeHandler));
+            return;
+        }
+
+        // A change that starts where the last queued one ends replaces it, as nothing will have been shown in between
+        PendingChange last = mPendingChanges.peekLast();
+        if (last != null && from != null && last.to == from) {
+            mPendingChanges.pollLast();
+            if (to != last.from) {
+                mPendingChanges.add(new PendingChange(to, last.from, isPush, changeHandler));
+            }
+        } else {
+            mPendingChanges.add(new PendingChange(to, from, isPush, changeHandler));
+        }
+
+        if (mRunningChangeHandler != null) {
+            mRunningChangeHandler.completeImmediately();
+        } else {
+            schedule();
+        }
+    }
+
+    /**
+     * Synchronously runs all queued changes in order, without waiting for the running one to complete.
+     */
+    void flush() {
+        mHandler.removeCallbacks(this);
+        mScheduled = false;
+        mRunningChangeHandler = null;
+
+        while (!mPendingChanges.isEmpty()) {
+            PendingChange change = mPendingChanges.poll();
+            mExecutor.executeChange(change.to, change.from, change.isPush, change.changeHandler, this);
+        }
+    }
+
+    /**
+     * Drops all queued changes, such as when the host Activity is being destroyed.
+     */
+    void clear() {
+        mHandler.removeCallbacks(this);
+        mScheduled = false;
+        mRunningChangeHandler = null;
+        mPendingChanges.clear();
+    }
+
+    @Override
+    public void run() {
+        mScheduled = false;
+
+        if (mRunningChangeHandler == null && !mPendingChanges.isEmpty()) {
+            execute(mPendingChanges.poll());
+        }
+    }
+
+    @Override
+    public void onChangeStarted(Controller to, Controller from, boolean isPush, ViewGroup container, ControllerChangeHandler handler) { }
+
+    @Override
+    public void onChangeCompleted(Controller to, Controller from, boolean isPush, ViewGroup container, ControllerChangeHandler handler) {
+        if (handler == mRunningChangeHandler) {
+            mRunningChangeHandler = null;
+            schedule();
+        }
+    }
+
+    private void execute(@NonNull PendingChange change) {
+        mRunningChangeHandler = change.changeHandler;
+        mExecutor.executeChange(change.to, change.from, change.isPush, change.changeHandler, this);
+    }
+
+    // Queued changes run on the next message rather than immediately, giving any other changes requested in the
+    // same frame a chance to be coalesced with them.
+    private void schedule() {
+        if (!mScheduled && !mPendingChanges.isEmpty()) {
+            mScheduled = true;
+            mHandler.post(this);
+        }
+    }
+
+    private static class PendingChange {
+        final Controller to;
+        final Controller from;
+        final boolean isPush;
+        final ControllerChangeHandler changeHandler;
+
+        PendingChange(Controller to, Controller from, boolean isPush, @NonNull ControllerChangeHandler changeHandler) {
+            this.to = to;
+            this.from = from;
+            this.isPush = isPush;
+            this.changeHandler = changeHandler;
+        }
+    }
+
+}
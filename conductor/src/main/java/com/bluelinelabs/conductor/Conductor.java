@@ -11,8 +11,65 @@ import com.bluelinelabs.conductor.internal.LifecycleHandler;
  * Point of initial interaction with Conductor. Used to attach a {@link Router} to your Activity.
  */
 public final class Conductor {
-    
+
+    private static FactoryRegistry sFactoryRegistry;
+    private static InstanceIdGenerator sInstanceIdGenerator = new SessionInstanceIdGenerator();
+    private static ChangeMetricsListener sChangeMetricsListener;
+
     private Conductor(){}
+
+    /**
+     * Registers a {@link FactoryRegistry}, typically the one generated by the conductor-compiler annotation
+     * processor, that will be used to create {@link Controller}s and {@link ControllerChangeHandler}s without
+     * reflection. This should be called before any Routers are attached, such as in Application.onCreate.
+     *
+     * @param factoryRegistry The registry to use, or null to always use reflection
+     */
+    public static void setFactoryRegistry(FactoryRegistry factoryRegistry) {
+        sFactoryRegistry = factoryRegistry;
+    }
+
+    /**
+     * Returns the currently registered {@link FactoryRegistry}, if any.
+     */
+    public static FactoryRegistry getFactoryRegistry() {
+        return sFactoryRegistry;
+    }
+
+    /**
+     * Registers the {@link InstanceIdGenerator} used to assign IDs to new {@link Controller}s. This should be
+     * called before any {@link Controller}s are created.
+     *
+     * @param instanceIdGenerator The generator to use, or null to restore the default one
+     */
+    public static void setInstanceIdGenerator(InstanceIdGenerator instanceIdGenerator) {
+        sInstanceIdGenerator = instanceIdGenerator != null ? instanceIdGenerator : new SessionInstanceIdGenerator();
+    }
+
+    /**
+     * Returns the {@link InstanceIdGenerator} currently used to assign IDs to new {@link Controller}s.
+     */
+    @NonNull
+    public static InstanceIdGenerator getInstanceIdGenerator() {
+        return sInstanceIdGenerator;
+    }
+
+    /**
+     * Registers a {@link ChangeMetricsListener} that will receive {@link ChangeMetrics} for every change between
+     * {@link Controller}s in any {@link Router}. Frames are only watched while a listener is registered.
+     *
+     * @param changeMetricsListener The listener to use, or null to stop measuring changes
+     */
+    public static void setChangeMetricsListener(ChangeMetricsListener changeMetricsListener) {
+        sChangeMetricsListener = changeMetricsListener;
+    }
+
+    /**
+     * Returns the currently registered {@link ChangeMetricsListener}, if any.
+     */
+    public static ChangeMetricsListener getChangeMetricsListener() {
+        return sChangeMetricsListener;
+    }
     
     /**
      * Conductor will create a {@link Router} that has been initialized for your Activity and containing ViewGroup.
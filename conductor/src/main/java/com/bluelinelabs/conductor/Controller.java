@@ -7,8 +7,10 @@ import android.content.Intent;
 import android.content.res.Resources;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -23,7 +25,8 @@ import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A Controller manages portions of the UI. It is similar to an Activity or Fragment in that it manages its
@@ -47,47 +50,117 @@ public abstract class Controller {
     private static final String KEY_VIEW_STATE_HIERARCHY = "Controller.viewState.hierarchy";
     private static final String KEY_VIEW_STATE_BUNDLE = "Controller.viewState.bundle";
 
+    // Constructor validation and lookup only needs to happen once per class
+    private static final Map<Class<?>, RestoreConstructor> sRestoreConstructors = new ConcurrentHashMap<>();
+
     private final Bundle mArgs;
 
     private Bundle mViewState;
+    private byte[] mCompactViewState;
     private boolean mIsBeingDestroyed;
     private boolean mDestroyed;
     private boolean mAttached;
+    private boolean mViewReleased;
+    private boolean mPreCreateViewDispatched;
+    private ViewPrefetcher.Request mPrefetchRequest;
+    private TransitionExclusions mTransitionExclusions;
+    private final OnAttachStateChangeListener mOnAttachStateChangeListener = new OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            attach(v);
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            detach(v);
+        }
+    };
     private Router mRouter;
     private View mView;
     private Controller mParentController;
     private String mInstanceId;
     private String mTargetInstanceId;
     private boolean mNeedsAttach;
+    private boolean mSavedStateDirty = true;
+    private Bundle mCachedSavedState;
+    private int mCachedPushHandlerVersion;
+    private int mCachedPopHandlerVersion;
     private ControllerChangeHandler mOverriddenPushHandler;
     private ControllerChangeHandler mOverriddenPopHandler;
     private RetainViewMode mRetainViewMode = RetainViewMode.RELEASE_DETACH;
     private final List<ChildControllerTransaction> mChildControllers = new ArrayList<>();
-    private final List<LifecycleListener> mLifecycleListeners = new ArrayList<>();
+    private final LifecycleListeners mLifecycleListeners = new LifecycleListeners();
     private final ArrayList<String> mRequestedPermissions = new ArrayList<>();
 
     static Controller newInstance(Bundle bundle) {
         final String className = bundle.getString(KEY_CLASS_NAME);
+
+        FactoryRegistry factoryRegistry = Conductor.getFactoryRegistry();
         //noinspection ConstantConditions
-        Constructor[] constructors = ClassUtils.classForName(className, false).getConstructors();
-        Constructor bundleConstructor = getBundleConstructor(constructors);
+        Controller controller = factoryRegistry != null ? factoryRegistry.newController(className, bundle.getBundle(KEY_ARGS)) : null;
 
-        Controller controller;
-        try {
-            if (bundleConstructor != null) {
-                controller = (Controller)bundleConstructor.newInstance(bundle.getBundle(KEY_ARGS));
-            } else {
-                //noinspection ConstantConditions
-                controller = (Controller)getDefaultConstructor(constructors).newInstance();
+        if (controller == null) {
+            //noinspection ConstantConditions
+            RestoreConstructor restoreConstructor = getRestoreConstructor(ClassUtils.classForName(className, false));
+
+            try {
+                if (restoreConstructor.takesBundle) {
+                    controller = (Controller)restoreConstructor.constructor.newInstance(bundle.getBundle(KEY_ARGS));
+                } else {
+                    controller = (Controller)restoreConstructor.constructor.newInstance();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("An exception occurred while creating a new instance of " + className + ". " + e.getMessage());
             }
-        } catch (Exception e) {
-            throw new RuntimeException("An exception occurred while creating a new instance of " + className + ". " + e.getMessage());
         }
 
         controller.restoreInstanceState(bundle);
         return controller;
     }
 
+    static boolean getNeedsAttach(@NonNull Bundle bundle) {
+        return bundle.getBoolean(KEY_NEEDS_ATTACH);
+    }
+
+    static void collectInstanceIds(@NonNull Bundle bundle, @NonNull List<String> instanceIds) {
+        instanceIds.add(bundle.getString(KEY_INSTANCE_ID));
+
+        List<Bundle> childBundles = bundle.getParcelableArrayList(KEY_CHILDREN);
+        if (childBundles != null) {
+            for (Bundle childBundle : childBundles) {
+                ControllerTransaction.collectInstanceIds(childBundle, instanceIds);
+            }
+        }
+    }
+
+    static void measureSavedState(@NonNull Bundle bundle, String parentInstanceId, @NonNull List<StateSizeReport.ControllerSize> sizes) {
+        String instanceId = bundle.getString(KEY_INSTANCE_ID);
+        Bundle viewState = bundle.getBundle(KEY_VIEW_STATE);
+        List<Bundle> childBundles = bundle.getParcelableArrayList(KEY_CHILDREN);
+
+        // Reserve this Controller's spot so that its children will follow it.
+        int index = sizes.size();
+        sizes.add(null);
+
+        if (childBundles != null) {
+            for (Bundle childBundle : childBundles) {
+                ControllerTransaction.measureSavedState(childBundle, instanceId, sizes);
+            }
+        }
+
+        sizes.set(index, new StateSizeReport.ControllerSize(
+                bundle.getString(KEY_CLASS_NAME),
+                instanceId,
+                parentInstanceId,
+                StateSizeReport.sizeOf(bundle),
+                StateSizeReport.sizeOf(bundle.getBundle(KEY_ARGS)),
+                viewState != null ? StateSizeReport.sizeOf(viewState.getSparseParcelableArray(KEY_VIEW_STATE_HIERARCHY)) : 0,
+                viewState != null ? StateSizeReport.sizeOf(viewState.getBundle(KEY_VIEW_STATE_BUNDLE)) : 0,
+                StateSizeReport.sizeOf(bundle.getBundle(KEY_SAVED_STATE)),
+                StateSizeReport.sizeOf(childBundles)
+        ));
+    }
+
     /**
      * Convenience constructor for use when no arguments are needed.
      */
@@ -102,14 +175,17 @@ public abstract class Controller {
      */
     protected Controller(Bundle args) {
         mArgs = args;
-        mInstanceId = UUID.randomUUID().toString();
+        mInstanceId = Conductor.getInstanceIdGenerator().newInstanceId();
         ensureRequiredConstructor();
     }
 
     /**
      * Called when the controller is ready to display its view. A valid view must be returned. The standard body
      * for this method will be {@code return inflater.inflate(R.layout.my_layout, container, false);}, plus
-     * any binding code.
+     * any binding code. If this Controller was prefetched with {@link Router#prefetch(RouterTransaction)},
+     * this will be called on a background thread, so it should not touch anything that isn't thread safe. If
+     * that view isn't finished by the time it's needed, this is called again on the main thread without waiting
+     * for it, and the view created in the background is discarded.
      *
      * @param inflater The LayoutInflater that should be used to inflate views
      * @param container The parent view that this Controller's view will eventually be attached to.
@@ -127,7 +203,8 @@ public abstract class Controller {
     }
 
     /**
-     * Returns any arguments that were set in this Controller's constructor
+     * Returns any arguments that were set in this Controller's constructor. If saved state caching is enabled
+     * on this Controller's {@link Router}, {@link #invalidateSavedState()} must be called after modifying them.
      */
     public Bundle getArgs() {
         return mArgs;
@@ -152,12 +229,17 @@ public abstract class Controller {
 
                 childTransaction.controller.mParentController = null;
 
+                if (mRouter != null) {
+                    mRouter.onChildControllerRemoved(controller);
+                }
+
                 if (controller.mView != null && controller.mView.getParent() != null) {
                     ViewGroup container = (ViewGroup)controller.mView.getParent();
                     ControllerChangeHandler.executeChange(null, controller, false, container, childTransaction.getPopControllerChangeHandler());
                 }
 
                 mChildControllers.remove(i);
+                mSavedStateDirty = true;
                 break;
             }
         }
@@ -283,6 +365,7 @@ public abstract class Controller {
         }
 
         mTargetInstanceId = target != null ? target.getInstanceId() : null;
+        mSavedStateDirty = true;
     }
 
     /**
@@ -302,6 +385,41 @@ public abstract class Controller {
      */
     protected void onDestroyView(View view) { }
 
+    /**
+     * Returns the parts of this Controller's view hierarchy that should not be captured by
+     * {@link com.bluelinelabs.conductor.changehandler.TransitionChangeHandler}s. Exclusions can be added at any
+     * time, typically in {@link #onCreateView(LayoutInflater, ViewGroup)}.
+     */
+    @NonNull
+    public final TransitionExclusions getTransitionExclusions() {
+        if (mTransitionExclusions == null) {
+            mTransitionExclusions = new TransitionExclusions();
+        }
+        return mTransitionExclusions;
+    }
+
+    /**
+     * Returns the key used to share views between Controllers through the Router's view pool, which can be
+     * enabled with {@link Router#setViewPool(int, int)}. Controllers that return the same key, typically their
+     * class or layout resource ID, must be able to use each other's views. When a pooled view is reused,
+     * {@link #onBindView(View)} is called instead of {@link #onCreateView(LayoutInflater, ViewGroup)}.
+     * Returns null by default, which keeps this Controller's views out of the pool.
+     */
+    @Nullable
+    protected Object getViewPoolKey() {
+        return null;
+    }
+
+    /**
+     * Called instead of {@link #onCreateView(LayoutInflater, ViewGroup)} when this Controller is given a view
+     * from the Router's view pool. The view was last used by another Controller and already had
+     * {@link #onDestroyView(View)} called on it, so everything that Controller set on it should be reset here.
+     * Any view state saved by this Controller is restored after this call.
+     *
+     * @param view The pooled view this Controller should bind to
+     */
+    protected void onBindView(@NonNull View view) { }
+
     /**
      * Called when this Controller begins the process of being swapped in or out of the host view.
      *
@@ -423,6 +541,7 @@ public abstract class Controller {
     @TargetApi(Build.VERSION_CODES.M)
     public final void requestPermissions(@NonNull String[] permissions, int requestCode) {
         mRequestedPermissions.addAll(Arrays.asList(permissions));
+        mSavedStateDirty = true;
         getRouter().getLifecycleHandler().requestPermissions(mInstanceId, permissions, requestCode);
     }
 
@@ -445,6 +564,15 @@ public abstract class Controller {
      */
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) { }
 
+    /**
+     * Called when the system is running low on memory, with the level passed to the host Activity's onTrimMemory
+     * method. Controllers that hold on to caches or other resources that can be rebuilt should release them here.
+     * Conductor will also release views and state of Controllers that aren't visible as the level escalates.
+     *
+     * @param level The trim level, as defined by ComponentCallbacks2
+     */
+    protected void onTrimMemory(int level) { }
+
     /**
      * Should be overridden if this Controller needs to handle the back button being pressed.
      *
@@ -468,8 +596,8 @@ public abstract class Controller {
      * @param lifecycleListener The listener
      */
     public void addLifecycleListener(LifecycleListener lifecycleListener) {
-        if (!mLifecycleListeners.contains(lifecycleListener)) {
-            mLifecycleListeners.add(lifecycleListener);
+        if (mLifecycleListeners.add(lifecycleListener)) {
+            mSavedStateDirty = true;
         }
     }
 
@@ -479,7 +607,9 @@ public abstract class Controller {
      * @param lifecycleListener The listener to be removed
      */
     public void removeLifecycleListener(LifecycleListener lifecycleListener) {
-        mLifecycleListeners.remove(lifecycleListener);
+        if (mLifecycleListeners.remove(lifecycleListener)) {
+            mSavedStateDirty = true;
+        }
     }
 
     /**
@@ -514,6 +644,7 @@ public abstract class Controller {
      */
     public void overridePushHandler(ControllerChangeHandler overriddenPushHandler) {
         mOverriddenPushHandler = overriddenPushHandler;
+        mSavedStateDirty = true;
     }
 
     /**
@@ -530,6 +661,18 @@ public abstract class Controller {
      */
     public void overridePopHandler(ControllerChangeHandler overriddenPopHandler) {
         mOverriddenPopHandler = overriddenPopHandler;
+        mSavedStateDirty = true;
+    }
+
+    /**
+     * Marks this Controller's saved state as changed. Only needs to be called if saved state caching has been
+     * enabled on this Controller's {@link Router}, in which case it must be called whenever anything written in
+     * {@link #onSaveInstanceState(Bundle)} or by a {@link LifecycleListener} changes, or after the arguments
+     * are modified. Attaching, detaching and changes made through Controller's own methods are tracked
+     * automatically.
+     */
+    public final void invalidateSavedState() {
+        mSavedStateDirty = true;
     }
 
     final void prepareForActivityPause() {
@@ -546,12 +689,19 @@ public abstract class Controller {
 
     final void requestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         mRequestedPermissions.removeAll(Arrays.asList(permissions));
+        mSavedStateDirty = true;
         onRequestPermissionsResult(requestCode, permissions, grantResults);
     }
 
     final void setRouter(@NonNull Router router) {
         mRouter = router;
 
+        // Controllers are restored before they have a Router, so their restored state is only kept as the cached
+        // state once it's known whether the Router caches saved state.
+        if (router != null && !router.isSavedStateCachingEnabled()) {
+            mCachedSavedState = null;
+        }
+
         for (ChildControllerTransaction child : mChildControllers) {
             child.controller.setRouter(router);
         }
@@ -562,6 +712,11 @@ public abstract class Controller {
             transaction.controller.setRouter(mRouter);
             transaction.controller.mParentController = this;
             mChildControllers.add(transaction);
+            mSavedStateDirty = true;
+
+            if (mRouter != null) {
+                mRouter.onChildControllerAdded(this, transaction.controller);
+            }
         }
 
         attachChildController(transaction, pushChangeHandler);
@@ -626,12 +781,13 @@ public abstract class Controller {
     }
 
     private void attach(@NonNull View view) {
-        for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+        for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.PRE_ATTACH)) {
             lifecycleListener.preAttach(this, view);
         }
 
         mAttached = true;
         mNeedsAttach = false;
+        mSavedStateDirty = true;
 
         for (ChildControllerTransaction child : mChildControllers) {
             attachChildController(child, new SimpleSwapChangeHandler());
@@ -639,18 +795,19 @@ public abstract class Controller {
 
         onAttach(view);
 
-        for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+        for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.POST_ATTACH)) {
             lifecycleListener.postAttach(this, view);
         }
     }
 
     private void detach(@NonNull View view) {
         if (mAttached) {
-            for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+            for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.PRE_DETACH)) {
                 lifecycleListener.preDetach(this, view);
             }
 
             mAttached = false;
+            mSavedStateDirty = true;
             onDetach(view);
 
             for (ChildControllerTransaction child : mChildControllers) {
@@ -661,32 +818,161 @@ public abstract class Controller {
             }
 
             if (mRetainViewMode == RetainViewMode.RELEASE_DETACH || mIsBeingDestroyed) {
-                removeViewReference();
+                ViewRetentionCache viewRetentionCache = getViewRetentionCache();
+                if (viewRetentionCache != null && !mIsBeingDestroyed) {
+                    viewRetentionCache.retain(this, view);
+                } else {
+                    removeViewReference();
+                }
             }
 
-            for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+            for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.POST_DETACH)) {
                 lifecycleListener.postDetach(this, view);
             }
         }
     }
 
+    final void trimMemory(int level) {
+        onTrimMemory(level);
+
+        for (ChildControllerTransaction child : mChildControllers) {
+            child.controller.trimMemory(level);
+        }
+    }
+
+    /**
+     * Releases this Controller's view and those of its children if they are not attached, regardless of their
+     * {@link RetainViewMode}.
+     */
+    final void releaseDetachedViews() {
+        releaseRetainedView();
+
+        for (ChildControllerTransaction child : mChildControllers) {
+            child.controller.releaseDetachedViews();
+        }
+    }
+
+    /**
+     * Stores the view state of this Controller and its children in marshalled form if they don't currently have
+     * views, and drops any cached saved state.
+     */
+    final void compactViewState() {
+        if (mView == null && mViewState != null) {
+            Parcel parcel = Parcel.obtain();
+            try {
+                parcel.writeBundle(mViewState);
+                mCompactViewState = parcel.marshall();
+                mViewState = null;
+            } finally {
+                parcel.recycle();
+            }
+        }
+
+        mCachedSavedState = null;
+
+        for (ChildControllerTransaction child : mChildControllers) {
+            child.controller.compactViewState();
+        }
+    }
+
+    final void clearSavedStateCache() {
+        mCachedSavedState = null;
+
+        for (ChildControllerTransaction child : mChildControllers) {
+            child.clearSavedStateCache();
+        }
+    }
+
+    private Bundle getViewState() {
+        if (mCompactViewState != null) {
+            Parcel parcel = Parcel.obtain();
+            try {
+                parcel.unmarshall(mCompactViewState, 0, mCompactViewState.length);
+                parcel.setDataPosition(0);
+                mViewState = parcel.readBundle(getClass().getClassLoader());
+                mCompactViewState = null;
+            } finally {
+                parcel.recycle();
+            }
+        }
+        return mViewState;
+    }
+
+    /**
+     * Starts creating this Controller's view on a background thread. The prefetched view will be used the next
+     * time the view is needed, or a new one will be created synchronously if it isn't ready yet. Listeners are
+     * notified of the view being created now, so that preCreateView is still called before onCreateView.
+     */
+    final void prefetchView(@NonNull ViewGroup parent) {
+        if (mView == null && mPrefetchRequest == null && !mIsBeingDestroyed) {
+            dispatchPreCreateView();
+            mPrefetchRequest = ViewPrefetcher.prefetch(this, parent);
+        }
+    }
+
+    final void cancelPrefetch() {
+        if (mPrefetchRequest != null) {
+            mPrefetchRequest.cancel();
+            mPrefetchRequest = null;
+        }
+    }
+
+    /**
+     * Releases a View that was created for a change that never happened, following this Controller's
+     * {@link RetainViewMode} the same way detaching does. Attached Views are released when they're detached instead.
+     */
+    final void releaseUnusedView() {
+        if (!mAttached && mView != null && mView.getParent() == null && mRetainViewMode == RetainViewMode.RELEASE_DETACH) {
+            ViewRetentionCache viewRetentionCache = getViewRetentionCache();
+            if (viewRetentionCache != null) {
+                viewRetentionCache.retain(this, mView);
+            } else {
+                removeViewReference();
+            }
+        }
+    }
+
+    final void releaseRetainedView() {
+        if (!mAttached) {
+            removeViewReference();
+        }
+    }
+
+    private ViewRetentionCache getViewRetentionCache() {
+        return mRouter != null ? mRouter.getViewRetentionCache() : null;
+    }
+
     private void removeViewReference() {
         if (mView != null) {
+            ViewRetentionCache viewRetentionCache = getViewRetentionCache();
+            if (viewRetentionCache != null) {
+                viewRetentionCache.remove(this);
+            }
+
             if (!mIsBeingDestroyed) {
                 saveViewState(mView);
+                mViewReleased = true;
             }
 
-            for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+            for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.PRE_DESTROY_VIEW)) {
                 lifecycleListener.preDestroyView(this, mView);
             }
 
             onDestroyView(mView);
 
+            View view = mView;
             mView = null;
+            view.removeOnAttachStateChangeListener(mOnAttachStateChangeListener);
+
+            if (mTransitionExclusions != null) {
+                mTransitionExclusions.clearViews();
+            }
 
-            for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+            for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.POST_DESTROY_VIEW)) {
                 lifecycleListener.postDestroyView(this);
             }
+
+            releaseToViewPool(view);
         }
 
         if (mIsBeingDestroyed) {
@@ -694,29 +980,54 @@ public abstract class Controller {
         }
     }
 
+    private void releaseToViewPool(@NonNull View view) {
+        // Views of Controllers with children would still contain their children's views
+        Object viewPoolKey = getViewPoolKey();
+        ViewPool viewPool = mRouter != null ? mRouter.getViewPool() : null;
+        if (viewPoolKey != null && viewPool != null && mChildControllers.isEmpty()) {
+            viewPool.release(viewPoolKey, view);
+        }
+    }
+
     final View inflate(@NonNull ViewGroup parent) {
-        if (mView == null) {
-            for (LifecycleListener lifecycleListener : mLifecycleListeners) {
-                lifecycleListener.preCreateView(this);
+        ViewRetentionCache viewRetentionCache = getViewRetentionCache();
+        if (viewRetentionCache != null) {
+            if (mView != null) {
+                if (viewRetentionCache.remove(this)) {
+                    viewRetentionCache.recordHit();
+                }
+            } else if (mViewReleased) {
+                viewRetentionCache.recordMiss();
             }
+        }
 
-            mView = onCreateView(LayoutInflater.from(parent.getContext()), parent);
+        if (mView == null) {
+            dispatchPreCreateView();
 
-            restoreViewState(mView);
+            if (mPrefetchRequest != null) {
+                mView = mPrefetchRequest.take();
+                mPrefetchRequest = null;
+            }
 
-            mView.addOnAttachStateChangeListener(new OnAttachStateChangeListener() {
-                @Override
-                public void onViewAttachedToWindow(View v) {
-                    attach(v);
+            Object viewPoolKey = getViewPoolKey();
+            ViewPool viewPool = mRouter != null ? mRouter.getViewPool() : null;
+            if (mView == null && viewPoolKey != null && viewPool != null) {
+                mView = viewPool.acquire(viewPoolKey);
+                if (mView != null) {
+                    onBindView(mView);
                 }
+            }
 
-                @Override
-                public void onViewDetachedFromWindow(View v) {
-                    detach(v);
-                }
-            });
+            if (mView == null) {
+                mView = onCreateView(LayoutInflater.from(parent.getContext()), parent);
+            }
+
+            restoreViewState(mView);
+
+            mView.addOnAttachStateChangeListener(mOnAttachStateChangeListener);
 
-            for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+            mPreCreateViewDispatched = false;
+            for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.POST_CREATE_VIEW)) {
                 lifecycleListener.postCreateView(this, mView);
             }
         }
@@ -724,9 +1035,19 @@ public abstract class Controller {
         return mView;
     }
 
+    private void dispatchPreCreateView() {
+        // A prefetch already notified listeners, even if its view ended up not being used.
+        if (!mPreCreateViewDispatched) {
+            mPreCreateViewDispatched = true;
+            for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.PRE_CREATE_VIEW)) {
+                lifecycleListener.preCreateView(this);
+            }
+        }
+    }
+
     final void performDestroy() {
         if (!mDestroyed) {
-            for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+            for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.PRE_DESTROY)) {
                 lifecycleListener.preDestroy(this);
             }
 
@@ -734,7 +1055,7 @@ public abstract class Controller {
 
             onDestroy();
 
-            for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+            for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.POST_DESTROY)) {
                 lifecycleListener.postDestroy(this);
             }
         }
@@ -746,6 +1067,7 @@ public abstract class Controller {
 
     final void destroy(boolean removeViews) {
         mIsBeingDestroyed = true;
+        cancelPrefetch();
 
         for (ChildControllerTransaction child : mChildControllers) {
             child.controller.destroy(removeViews);
@@ -760,6 +1082,8 @@ public abstract class Controller {
 
     final void saveViewState(@NonNull View view) {
         mViewState = new Bundle();
+        mCompactViewState = null;
+        mSavedStateDirty = true;
 
         SparseArray<Parcelable> hierarchyState = new SparseArray<>();
         view.saveHierarchyState(hierarchyState);
@@ -777,9 +1101,10 @@ public abstract class Controller {
     }
 
     final void restoreViewState(@NonNull View view) {
-        if (mViewState != null) {
-            view.restoreHierarchyState(mViewState.getSparseParcelableArray(KEY_VIEW_STATE_HIERARCHY));
-            onRestoreViewState(view, mViewState.getBundle(KEY_VIEW_STATE_BUNDLE));
+        Bundle viewState = getViewState();
+        if (viewState != null) {
+            view.restoreHierarchyState(viewState.getSparseParcelableArray(KEY_VIEW_STATE_HIERARCHY));
+            onRestoreViewState(view, viewState.getBundle(KEY_VIEW_STATE_BUNDLE));
 
             for (ChildControllerTransaction child : mChildControllers) {
                 if (child.controller.mView != null) {
@@ -794,9 +1119,14 @@ public abstract class Controller {
             detach(mView);
         }
 
+        boolean cachingEnabled = mRouter != null && mRouter.isSavedStateCachingEnabled();
+        if (cachingEnabled && mCachedSavedState != null && !isSavedStateDirty()) {
+            return mCachedSavedState;
+        }
+
         Bundle outState = new Bundle();
         outState.putString(KEY_CLASS_NAME, getClass().getCanonicalName());
-        outState.putBundle(KEY_VIEW_STATE, mViewState);
+        outState.putBundle(KEY_VIEW_STATE, getViewState());
         outState.putBundle(KEY_ARGS, mArgs);
         outState.putString(KEY_INSTANCE_ID, mInstanceId);
         outState.putString(KEY_TARGET_INSTANCE_ID, mTargetInstanceId);
@@ -819,15 +1149,34 @@ public abstract class Controller {
         Bundle savedState = new Bundle();
         onSaveInstanceState(savedState);
 
-        for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+        for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.SAVE_INSTANCE_STATE)) {
             lifecycleListener.onSaveInstanceState(this, savedState);
         }
 
         outState.putBundle(KEY_SAVED_STATE, savedState);
 
+        mCachedSavedState = cachingEnabled ? outState : null;
+        mCachedPushHandlerVersion = ControllerChangeHandler.getSavedStateVersion(mOverriddenPushHandler);
+        mCachedPopHandlerVersion = ControllerChangeHandler.getSavedStateVersion(mOverriddenPopHandler);
+        mSavedStateDirty = false;
+
         return outState;
     }
 
+    private boolean isSavedStateDirty() {
+        if (mSavedStateDirty || mCachedPushHandlerVersion != ControllerChangeHandler.getSavedStateVersion(mOverriddenPushHandler)
+                || mCachedPopHandlerVersion != ControllerChangeHandler.getSavedStateVersion(mOverriddenPopHandler)) {
+            return true;
+        }
+
+        for (ChildControllerTransaction child : mChildControllers) {
+            if (child.controller.isSavedStateDirty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void restoreInstanceState(@NonNull Bundle savedInstanceState) {
         mViewState = savedInstanceState.getBundle(KEY_VIEW_STATE);
         mInstanceId = savedInstanceState.getString(KEY_INSTANCE_ID);
@@ -845,15 +1194,22 @@ public abstract class Controller {
         Bundle savedState = savedInstanceState.getBundle(KEY_SAVED_STATE);
         onRestoreInstanceState(savedState);
 
-        for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+        for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.RESTORE_INSTANCE_STATE)) {
             lifecycleListener.onRestoreInstanceState(this, savedState);
         }
+
+        // Until something changes, the state this Controller was just restored from is also its current state. It's
+        // dropped again by setRouter if the Router doesn't cache saved state.
+        mCachedSavedState = savedInstanceState;
+        mCachedPushHandlerVersion = 0;
+        mCachedPopHandlerVersion = 0;
+        mSavedStateDirty = false;
     }
 
     final void changeStarted(ControllerChangeHandler changeHandler, ControllerChangeType changeType) {
         onChangeStarted(changeHandler, changeType);
 
-        for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+        for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.CHANGE_START)) {
             lifecycleListener.onChangeStart(this, changeHandler, changeType);
         }
     }
@@ -861,16 +1217,46 @@ public abstract class Controller {
     final void changeEnded(ControllerChangeHandler changeHandler, ControllerChangeType changeType) {
         onChangeEnded(changeHandler, changeType);
 
-        for (LifecycleListener lifecycleListener : mLifecycleListeners) {
+        for (LifecycleListener lifecycleListener : mLifecycleListeners.get(LifecycleListeners.CHANGE_END)) {
             lifecycleListener.onChangeEnd(this, changeHandler, changeType);
         }
     }
 
     private void ensureRequiredConstructor() {
-        Constructor[] constructors = getClass().getConstructors();
-        if (getBundleConstructor(constructors) == null && getDefaultConstructor(constructors) == null) {
-            throw new RuntimeException(getClass() + " does not have a constructor that takes a Bundle argument or a default constructor. Controllers must have one of these in order to restore their states.");
+        FactoryRegistry factoryRegistry = Conductor.getFactoryRegistry();
+        if (factoryRegistry != null && factoryRegistry.hasFactory(getClass())) {
+            return;
+        }
+
+        getRestoreConstructor(getClass());
+    }
+
+    static RestoreConstructor getRestoreConstructor(Class<?> cls) {
+        RestoreConstructor restoreConstructor = sRestoreConstructors.get(cls);
+        if (restoreConstructor == null) {
+            Constructor[] constructors = cls.getConstructors();
+
+            Constructor bundleConstructor = getBundleConstructor(constructors);
+            if (bundleConstructor != null) {
+                restoreConstructor = new RestoreConstructor(bundleConstructor, true);
+            } else {
+                Constructor defaultConstructor = getDefaultConstructor(constructors);
+                if (defaultConstructor == null) {
+                    throw new RuntimeException(cls + " does not have a constructor that takes a Bundle argument or a default constructor. Controllers must have one of these in order to restore their states.");
+                }
+                restoreConstructor = new RestoreConstructor(defaultConstructor, false);
+            }
+
+            sRestoreConstructors.put(cls, restoreConstructor);
         }
+        return restoreConstructor;
+    }
+
+    /**
+     * Forgets every cached constructor, so the next lookup for each class pays the full reflective cost again.
+     */
+    static void clearConstructorCache() {
+        sRestoreConstructors.clear();
     }
 
     private static Constructor getDefaultConstructor(Constructor[] constructors) {
@@ -891,6 +1277,17 @@ public abstract class Controller {
         return null;
     }
 
+    /** The validated constructor used to re-create a given Controller class */
+    static class RestoreConstructor {
+        final Constructor constructor;
+        final boolean takesBundle;
+
+        RestoreConstructor(Constructor constructor, boolean takesBundle) {
+            this.constructor = constructor;
+            this.takesBundle = takesBundle;
+        }
+    }
+
     /** Modes that will influence when the Controller will allow its view to be destroyed */
     public enum RetainViewMode {
         /** The Controller will release its reference to its view as soon as it is detached. */
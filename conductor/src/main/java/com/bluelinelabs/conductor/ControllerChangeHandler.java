@@ -10,8 +10,11 @@ import com.bluelinelabs.conductor.ControllerTransaction.ControllerChangeType;
 import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
 import com.bluelinelabs.conductor.internal.ClassUtils;
 
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ControllerChangeHandlers are responsible for swapping the View for one Controller to the View
@@ -23,6 +26,14 @@ public abstract class ControllerChangeHandler {
     private static final String KEY_CLASS_NAME = "ControllerChangeHandler.className";
     private static final String KEY_SAVED_STATE = "ControllerChangeHandler.savedState";
 
+    // Constructor validation and lookup only needs to happen once per class
+    private static final Map<Class<?>, Constructor<?>> sDefaultConstructors = new ConcurrentHashMap<>();
+
+    private Controller mToController;
+    private Controller mFromController;
+    // Incremented whenever the state written by saveToBundle changes, so cached saved state can be checked against it
+    private int mSavedStateVersion;
+
     /**
      * Responsible for swapping Views from one Controller to another.
      *
@@ -52,6 +63,19 @@ public abstract class ControllerChangeHandler {
      */
     public void restoreFromBundle(@NonNull Bundle bundle) { }
 
+    /**
+     * Marks this handler's saved state as changed. Only needs to be called if saved state caching has been enabled
+     * on the {@link Router} this handler is used with, in which case it must be called whenever anything written in
+     * {@link #saveToBundle(Bundle)} changes.
+     */
+    public final void invalidateSavedState() {
+        mSavedStateVersion++;
+    }
+
+    static int getSavedStateVersion(ControllerChangeHandler changeHandler) {
+        return changeHandler != null ? changeHandler.mSavedStateVersion : 0;
+    }
+
     final Bundle toBundle() {
         Bundle bundle = new Bundle();
         bundle.putString(KEY_CLASS_NAME, getClass().getCanonicalName());
@@ -64,17 +88,37 @@ public abstract class ControllerChangeHandler {
     }
 
     private void ensureDefaultConstructor() {
-        try {
-            getClass().getConstructor();
-        } catch (Exception e) {
-            throw new RuntimeException(getClass() + " does not have a default constructor.");
+        FactoryRegistry factoryRegistry = Conductor.getFactoryRegistry();
+        if (factoryRegistry != null && factoryRegistry.hasFactory(getClass())) {
+            return;
+        }
+
+        getDefaultConstructor(getClass());
+    }
+
+    static Constructor<?> getDefaultConstructor(Class<?> cls) {
+        Constructor<?> constructor = sDefaultConstructors.get(cls);
+        if (constructor == null) {
+            try {
+                constructor = cls.getConstructor();
+            } catch (Exception e) {
+                throw new RuntimeException(cls + " does not have a default constructor.");
+            }
+            sDefaultConstructors.put(cls, constructor);
         }
+        return constructor;
+    }
+
+    /**
+     * Forgets every cached constructor, so the next lookup for each class pays the full reflective cost again.
+     */
+    static void clearConstructorCache() {
+        sDefaultConstructors.clear();
     }
 
     public static ControllerChangeHandler fromBundle(@Nullable Bundle bundle) {
         if (bundle != null) {
-            String className = bundle.getString(KEY_CLASS_NAME);
-            ControllerChangeHandler changeHandler = ClassUtils.newInstance(className);
+            ControllerChangeHandler changeHandler = newInstance(bundle.getString(KEY_CLASS_NAME));
             //noinspection ConstantConditions
             changeHandler.restoreFromBundle(bundle.getBundle(KEY_SAVED_STATE));
             return changeHandler;
@@ -83,52 +127,168 @@ public abstract class ControllerChangeHandler {
         }
     }
 
+    /**
+     * Creates a new instance of the ControllerChangeHandler with the given class name, using the registered
+     * {@link FactoryRegistry} if it is able to create it, or reflection otherwise.
+     *
+     * @param className The canonical name of the ControllerChangeHandler class
+     */
+    public static ControllerChangeHandler newInstance(String className) {
+        FactoryRegistry factoryRegistry = Conductor.getFactoryRegistry();
+        ControllerChangeHandler changeHandler = factoryRegistry != null && className != null ? factoryRegistry.newChangeHandler(className) : null;
+        if (changeHandler == null) {
+            Class<?> cls = ClassUtils.classForName(className);
+            if (cls != null) {
+                try {
+                    changeHandler = (ControllerChangeHandler)getDefaultConstructor(cls).newInstance();
+                } catch (Exception e) {
+                    throw new RuntimeException("An exception occurred while creating a new instance of " + className + ". " + e.getMessage());
+                }
+            }
+        }
+        return changeHandler;
+    }
+
+    /**
+     * Called when a {@link Router} that queues changes has a new change waiting while this handler's change is
+     * still running. Handlers that can jump to the end of their change, such as by ending an animation early,
+     * should do so and call their {@link ControllerChangeCompletedListener}. The default implementation does
+     * nothing, which lets the change finish normally.
+     */
+    public void completeImmediately() { }
+
+    /**
+     * Returns the {@link Controller} being shown by the change this handler is currently performing, if any.
+     * Only valid from the time {@link #performChange} is called until the change is completed.
+     */
+    @Nullable
+    protected final Controller getToController() {
+        return mToController;
+    }
+
+    /**
+     * Returns the {@link Controller} being removed by the change this handler is currently performing, if any.
+     * Only valid from the time {@link #performChange} is called until the change is completed.
+     */
+    @Nullable
+    protected final Controller getFromController() {
+        return mFromController;
+    }
+
     public static void executeChange(final Controller to, final Controller from, boolean isPush, ViewGroup container, ControllerChangeHandler inHandler) {
         executeChange(to, from, isPush, container, inHandler, new ArrayList<ControllerChangeListener>());
     }
 
     public static void executeChange(final Controller to, final Controller from, final boolean isPush, final ViewGroup container, final ControllerChangeHandler inHandler, @NonNull final List<ControllerChangeListener> listeners) {
         if (container != null) {
-            for (ControllerChangeListener listener : listeners) {
-                listener.onChangeStarted(to, from, isPush, container, inHandler);
-            }
+            startChange(to, from, isPush, container, inHandler, listeners).perform();
+        }
+    }
 
-            final ControllerChangeType toChangeType = isPush ? ControllerChangeType.PUSH_ENTER : ControllerChangeType.POP_ENTER;
-            final ControllerChangeType fromChangeType = isPush ? ControllerChangeType.PUSH_EXIT : ControllerChangeType.POP_EXIT;
+    /**
+     * Notifies listeners and both Controllers that a change is starting, the same way for regular and interactive
+     * changes. The returned change must either be performed or, if it's abandoned, completed directly.
+     */
+    @NonNull
+    static StartedChange startChange(Controller to, Controller from, boolean isPush, @NonNull ViewGroup container, ControllerChangeHandler inHandler, @NonNull List<ControllerChangeListener> listeners) {
+        for (ControllerChangeListener listener : listeners) {
+            listener.onChangeStarted(to, from, isPush, container, inHandler);
+        }
 
-            final ControllerChangeHandler handler = inHandler != null ? inHandler : new SimpleSwapChangeHandler();
-            final View toView;
-            if (to != null) {
-                toView = to.inflate(container);
-                to.changeStarted(handler, toChangeType);
+        ControllerChangeHandler handler = inHandler != null ? inHandler : new SimpleSwapChangeHandler();
+
+        ChangeMetricsListener metricsListener = Conductor.getChangeMetricsListener();
+        ChangeMetricsRecorder metricsRecorder;
+        if (metricsListener != null) {
+            metricsRecorder = new ChangeMetricsRecorder(metricsListener, handler, to, from, isPush, System.nanoTime());
+            metricsRecorder.start();
+        } else {
+            metricsRecorder = null;
+        }
+
+        StartedChange change = new StartedChange(to, from, isPush, container, handler, inHandler, listeners, metricsRecorder);
+
+        if (to != null) {
+            if (metricsRecorder != null) {
+                boolean createsView = to.getView() == null;
+                long inflateStartNanos = System.nanoTime();
+                change.toView = to.inflate(container);
+                metricsRecorder.onViewInflated(createsView, System.nanoTime() - inflateStartNanos);
             } else {
-                toView = null;
+                change.toView = to.inflate(container);
+            }
+            to.changeStarted(handler, change.toChangeType);
+        }
+
+        if (from != null) {
+            change.fromView = from.getView();
+            from.changeStarted(handler, change.fromChangeType);
+        }
+
+        handler.mToController = to;
+        handler.mFromController = from;
+        return change;
+    }
+
+    /**
+     * A change that listeners and Controllers have been notified of, which notifies them again once it completes.
+     */
+    static final class StartedChange implements ControllerChangeCompletedListener {
+
+        final Controller to;
+        final Controller from;
+        final boolean isPush;
+        final ViewGroup container;
+        final ControllerChangeHandler handler;
+        final ControllerChangeType toChangeType;
+        final ControllerChangeType fromChangeType;
+        View toView;
+        View fromView;
+
+        private final ControllerChangeHandler mInHandler;
+        private final List<ControllerChangeListener> mListeners;
+        private final ChangeMetricsRecorder mMetricsRecorder;
+
+        StartedChange(Controller to, Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler,
+                      ControllerChangeHandler inHandler, @NonNull List<ControllerChangeListener> listeners, ChangeMetricsRecorder metricsRecorder) {
+            this.to = to;
+            this.from = from;
+            this.isPush = isPush;
+            this.container = container;
+            this.handler = handler;
+            toChangeType = isPush ? ControllerChangeType.PUSH_ENTER : ControllerChangeType.POP_ENTER;
+            fromChangeType = isPush ? ControllerChangeType.PUSH_EXIT : ControllerChangeType.POP_EXIT;
+            mInHandler = inHandler;
+            mListeners = listeners;
+            mMetricsRecorder = metricsRecorder;
+        }
+
+        void perform() {
+            handler.performChange(container, fromView, toView, isPush, this);
+        }
+
+        @Override
+        public void onChangeCompleted() {
+            if (handler.mToController == to && handler.mFromController == from) {
+                handler.mToController = null;
+                handler.mFromController = null;
             }
 
-            final View fromView;
             if (from != null) {
-                fromView = from.getView();
-                from.changeStarted(handler, fromChangeType);
-            } else {
-                fromView = null;
+                from.changeEnded(handler, fromChangeType);
             }
 
-            handler.performChange(container, fromView, toView, isPush, new ControllerChangeCompletedListener() {
-                @Override
-                public void onChangeCompleted() {
-                    if (from != null) {
-                        from.changeEnded(handler, fromChangeType);
-                    }
+            if (to != null) {
+                to.changeEnded(handler, toChangeType);
+            }
 
-                    if (to != null) {
-                        to.changeEnded(handler, toChangeType);
-                    }
+            for (ControllerChangeListener listener : mListeners) {
+                listener.onChangeCompleted(to, from, isPush, container, mInHandler);
+            }
 
-                    for (ControllerChangeListener listener : listeners) {
-                        listener.onChangeCompleted(to, from, isPush, container, inHandler);
-                    }
-                }
-            });
+            if (mMetricsRecorder != null) {
+                mMetricsRecorder.onChangeCompleted(System.nanoTime());
+            }
         }
     }
 
@@ -3,6 +3,8 @@ package com.bluelinelabs.conductor;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 
+import java.util.List;
+
 /**
  * Metadata used to transition between {@link Controller}s.
  */
@@ -36,6 +38,12 @@ public class ControllerTransaction {
     private final ControllerChangeHandler mPushControllerChangeHandler;
     private final ControllerChangeHandler mPopControllerChangeHandler;
 
+    // The last saved state, which can be reused as long as the Controller's own saved state hasn't changed
+    private Bundle mSavedState;
+    private Bundle mSavedControllerState;
+    private int mSavedPushHandlerVersion;
+    private int mSavedPopHandlerVersion;
+
     ControllerTransaction(Builder builder) {
         controller = builder.controller;
         tag = builder.tag;
@@ -74,13 +82,43 @@ public class ControllerTransaction {
         return handler;
     }
 
+    static String getTag(@NonNull Bundle bundle) {
+        return bundle.getString(KEY_TAG);
+    }
+
+    static boolean getNeedsAttach(@NonNull Bundle bundle) {
+        return Controller.getNeedsAttach(bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE));
+    }
+
+    static void collectInstanceIds(@NonNull Bundle bundle, @NonNull List<String> instanceIds) {
+        Controller.collectInstanceIds(bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE), instanceIds);
+    }
+
+    void clearSavedStateCache() {
+        mSavedState = null;
+        mSavedControllerState = null;
+        controller.clearSavedStateCache();
+    }
+
+    static void measureSavedState(@NonNull Bundle bundle, String parentInstanceId, @NonNull List<StateSizeReport.ControllerSize> sizes) {
+        Controller.measureSavedState(bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE), parentInstanceId, sizes);
+    }
+
     /**
      * Used to serialize this transaction into a Bundle
      */
     public Bundle detachAndSaveInstanceState() {
+        Bundle controllerState = controller.detachAndSaveInstanceState();
+        int pushHandlerVersion = ControllerChangeHandler.getSavedStateVersion(mPushControllerChangeHandler);
+        int popHandlerVersion = ControllerChangeHandler.getSavedStateVersion(mPopControllerChangeHandler);
+        if (mSavedState != null && controllerState == mSavedControllerState && pushHandlerVersion == mSavedPushHandlerVersion
+                && popHandlerVersion == mSavedPopHandlerVersion) {
+            return mSavedState;
+        }
+
         Bundle bundle = new Bundle();
 
-        bundle.putBundle(KEY_VIEW_CONTROLLER_BUNDLE, controller.detachAndSaveInstanceState());
+        bundle.putBundle(KEY_VIEW_CONTROLLER_BUNDLE, controllerState);
 
         if (mPushControllerChangeHandler != null) {
             bundle.putBundle(KEY_PUSH_TRANSITION, mPushControllerChangeHandler.toBundle());
@@ -91,6 +129,17 @@ public class ControllerTransaction {
 
         bundle.putString(KEY_TAG, tag);
 
+        Router router = controller.getRouter();
+        if (router != null && router.isSavedStateCachingEnabled()) {
+            mSavedState = bundle;
+            mSavedControllerState = controllerState;
+            mSavedPushHandlerVersion = pushHandlerVersion;
+            mSavedPopHandlerVersion = popHandlerVersion;
+        } else {
+            mSavedState = null;
+            mSavedControllerState = null;
+        }
+
         return bundle;
     }
 
@@ -0,0 +1,71 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Looper;
+import android.os.MessageQueue.IdleHandler;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * Destroys {@link Controller}s that have left the backstack in small slices while the main thread is idle, rather
+ * than all at once in the same frame as the change that removed them.
+ */
+class DestructionQueue implements IdleHandler {
+
+    static final long DEFAULT_SLICE_BUDGET_MILLIS = 4;
+
+    private final ArrayDeque<Controller> mPendingControllers = new ArrayDeque<>();
+    private final long mSliceBudgetMillis;
+    private boolean mIdleHandlerRegistered;
+
+    DestructionQueue(long sliceBudgetMillis) {
+        mSliceBudgetMillis = sliceBudgetMillis;
+    }
+
+    void enqueue(@NonNull Controller controller) {
+        mPendingControllers.add(controller);
+
+        if (!mIdleHandlerRegistered) {
+            mIdleHandlerRegistered = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    int size() {
+        return mPendingControllers.size();
+    }
+
+    /**
+     * Synchronously destroys all pending {@link Controller}s.
+     */
+    void flush() {
+        while (!mPendingControllers.isEmpty()) {
+            mPendingControllers.poll().destroy();
+        }
+
+        if (mIdleHandlerRegistered) {
+            mIdleHandlerRegistered = false;
+            Looper.myQueue().removeIdleHandler(this);
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (mPendingControllers.isEmpty()) {
+            mIdleHandlerRegistered = false;
+            return false;
+        }
+
+        final long deadline = SystemClock.uptimeMillis() + mSliceBudgetMillis;
+
+        // Always make progress, even if a single Controller takes longer than the budget to tear down.
+        do {
+            mPendingControllers.poll().destroy();
+        } while (!mPendingControllers.isEmpty() && SystemClock.uptimeMillis() < deadline);
+
+        mIdleHandlerRegistered = !mPendingControllers.isEmpty();
+        return mIdleHandlerRegistered;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Creates {@link Controller}s and {@link ControllerChangeHandler}s without reflection. An implementation is
+ * generated at compile time by the conductor-compiler annotation processor and can be registered with
+ * {@link Conductor#setFactoryRegistry(FactoryRegistry)}. Any class the registry does not know about falls back
+ * to being created reflectively.
+ */
+public interface FactoryRegistry {
+
+    /**
+     * Returns whether or not this registry is able to create instances of the passed class.
+     *
+     * @param cls The {@link Controller} or {@link ControllerChangeHandler} class
+     */
+    boolean hasFactory(@NonNull Class<?> cls);
+
+    /**
+     * Creates a new instance of the {@link Controller} with the passed class name, or returns null if this
+     * registry doesn't know about it.
+     *
+     * @param className The canonical name of the {@link Controller} class
+     * @param args The arguments to pass to the {@link Controller}'s Bundle constructor, if it has one
+     */
+    @Nullable
+    Controller newController(@NonNull String className, @Nullable Bundle args);
+
+    /**
+     * Creates a new instance of the {@link ControllerChangeHandler} with the passed class name, or returns null
+     * if this registry doesn't know about it.
+     *
+     * @param className The canonical name of the {@link ControllerChangeHandler} class
+     */
+    @Nullable
+    ControllerChangeHandler newChangeHandler(@NonNull String className);
+
+}
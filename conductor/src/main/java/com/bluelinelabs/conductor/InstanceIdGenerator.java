@@ -0,0 +1,18 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Generates the instance IDs assigned to newly created {@link Controller}s. IDs are saved and restored along with
+ * their {@link Controller}s, so they must remain unique across process restarts, not just within one process. A
+ * custom generator can be registered with {@link Conductor#setInstanceIdGenerator(InstanceIdGenerator)}.
+ */
+public interface InstanceIdGenerator {
+
+    /**
+     * Returns a new instance ID. May be called from any thread on which {@link Controller}s are created.
+     */
+    @NonNull
+    String newInstanceId();
+
+}
@@ -0,0 +1,167 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.view.View;
+
+import com.bluelinelabs.conductor.Controller.LifecycleListener;
+import com.bluelinelabs.conductor.ControllerTransaction.ControllerChangeType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link Controller}'s {@link LifecycleListener}s, grouped by event. Each listener is only added to the events
+ * its class actually overrides, so dispatching an event skips every listener that would ignore it. Events are
+ * stored as arrays that are replaced whenever a listener is added or removed, so they can be iterated without
+ * allocating, even if listeners are added or removed while an event is being dispatched.
+ */
+class LifecycleListeners {
+
+    static final int CHANGE_START = 0;
+    static final int CHANGE_END = 1;
+    static final int PRE_CREATE_VIEW = 2;
+    static final int POST_CREATE_VIEW = 3;
+    static final int PRE_ATTACH = 4;
+    static final int POST_ATTACH = 5;
+    static final int PRE_DETACH = 6;
+    static final int POST_DETACH = 7;
+    static final int PRE_DESTROY_VIEW = 8;
+    static final int POST_DESTROY_VIEW = 9;
+    static final int PRE_DESTROY = 10;
+    static final int POST_DESTROY = 11;
+    static final int SAVE_INSTANCE_STATE = 12;
+    static final int RESTORE_INSTANCE_STATE = 13;
+    private static final int EVENT_COUNT = 14;
+
+    private static final int ALL_EVENTS = (1 << EVENT_COUNT) - 1;
+
+    // Indexed by event
+    private static final String[] METHOD_NAMES = {
+            "onChangeStart", "onChangeEnd",
+            "preCreateView", "postCreateView",
+            "preAttach", "postAttach",
+            "preDetach", "postDetach",
+            "preDestroyView", "postDestroyView",
+            "preDestroy", "postDestroy",
+            "onSaveInstanceState", "onRestoreInstanceState"
+    };
+    private static final Class<?>[][] PARAMETER_TYPES = {
+            { Controller.class, ControllerChangeHandler.class, ControllerChangeType.class },
+            { Controller.class, ControllerChangeHandler.class, ControllerChangeType.class },
+            { Controller.class },
+            { Controller.class, View.class },
+            { Controller.class, View.class },
+            { Controller.class, View.class },
+            { Controller.class, View.class },
+            { Controller.class, View.class },
+            { Controller.class, View.class },
+            { Controller.class },
+            { Controller.class },
+            { Controller.class },
+            { Controller.class, Bundle.class },
+            { Controller.class, Bundle.class }
+    };
+
+    private static final LifecycleListener[] EMPTY = new LifecycleListener[0];
+    private static final Map<Class<?>, Integer> sEventMasks = new ConcurrentHashMap<>();
+
+    private final List<LifecycleListener> mListeners = new ArrayList<>();
+    private final LifecycleListener[][] mListenersByEvent = new LifecycleListener[EVENT_COUNT][];
+
+    LifecycleListeners() {
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            mListenersByEvent[i] = EMPTY;
+        }
+    }
+
+    /**
+     * Returns the listeners that override the passed event's callback, in the order they were added. The returned
+     * array must not be modified.
+     */
+    @NonNull
+    LifecycleListener[] get(int event) {
+        return mListenersByEvent[event];
+    }
+
+    boolean add(@NonNull LifecycleListener listener) {
+        if (mListeners.contains(listener)) {
+            return false;
+        }
+
+        mListeners.add(listener);
+
+        int eventMask = getEventMask(listener.getClass());
+        for (int event = 0; event < EVENT_COUNT; event++) {
+            if ((eventMask & (1 << event)) != 0) {
+                LifecycleListener[] listeners = mListenersByEvent[event];
+                LifecycleListener[] newListeners = new LifecycleListener[listeners.length + 1];
+                System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+                newListeners[listeners.length] = listener;
+                mListenersByEvent[event] = newListeners;
+            }
+        }
+        return true;
+    }
+
+    boolean remove(@NonNull LifecycleListener listener) {
+        int listenerIndex = mListeners.indexOf(listener);
+        if (listenerIndex < 0) {
+            return false;
+        }
+
+        // Removes the instance that was actually added, as it may only be equal to the passed one
+        listener = mListeners.remove(listenerIndex);
+
+        for (int event = 0; event < EVENT_COUNT; event++) {
+            LifecycleListener[] listeners = mListenersByEvent[event];
+            int index = indexOf(listeners, listener);
+            if (index >= 0) {
+                LifecycleListener[] newListeners = listeners.length == 1 ? EMPTY : new LifecycleListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, index);
+                System.arraycopy(listeners, index + 1, newListeners, index, listeners.length - index - 1);
+                mListenersByEvent[event] = newListeners;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a bitmask of the events whose callbacks the passed listener class overrides, computed once per class.
+     */
+    static int getEventMask(@NonNull Class<? extends LifecycleListener> listenerClass) {
+        Integer eventMask = sEventMasks.get(listenerClass);
+        if (eventMask == null) {
+            eventMask = computeEventMask(listenerClass);
+            sEventMasks.put(listenerClass, eventMask);
+        }
+        return eventMask;
+    }
+
+    private static int computeEventMask(@NonNull Class<? extends LifecycleListener> listenerClass) {
+        int eventMask = 0;
+        for (int event = 0; event < EVENT_COUNT; event++) {
+            try {
+                if (listenerClass.getMethod(METHOD_NAMES[event], PARAMETER_TYPES[event]).getDeclaringClass() != LifecycleListener.class) {
+                    eventMask |= 1 << event;
+                }
+            } catch (Exception e) {
+                // Callbacks can't be looked up, such as when they've been renamed by an obfuscator
+                return ALL_EVENTS;
+            }
+        }
+        return eventMask;
+    }
+
+    private static int indexOf(@NonNull LifecycleListener[] listeners, @NonNull LifecycleListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
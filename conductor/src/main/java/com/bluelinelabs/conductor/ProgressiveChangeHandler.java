@@ -0,0 +1,60 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * A {@link ControllerChangeHandler} whose change can be driven interactively, such as by a drag or back gesture,
+ * before it's either committed or cancelled. Usually started through {@link Router#startInteractivePop()}.
+ */
+public interface ProgressiveChangeHandler {
+
+    /**
+     * Notified once an interactive change has been committed or cancelled.
+     */
+    interface ProgressListener {
+
+        /**
+         * Called when {@link #commit()} is called. The listener is expected to perform the change as usual, with
+         * the same Views, at which point it will continue from the current progress.
+         */
+        void onProgressCommitted(@NonNull ProgressiveChangeHandler changeHandler);
+
+        /**
+         * Called once a cancelled change has returned to its starting state and any View it added has been removed.
+         */
+        void onProgressCancelled(@NonNull ProgressiveChangeHandler changeHandler);
+    }
+
+    /**
+     * Prepares an interactive change at a progress of 0. The "to" View is added to the container if needed, but
+     * the "from" View is left in place until the change is committed and performed. Handlers that can't drive
+     * this particular change interactively should return false without changing anything.
+     *
+     * @param container The container these Views are hosted in.
+     * @param from The previous View in the container, if any.
+     * @param to The next View that should be put in the container, if any.
+     * @param isPush True if this is a push transaction, false if it's a pop.
+     * @param progressListener The listener notified once the change is committed or cancelled.
+     * @return True if the change was started, or false if it can't be driven interactively.
+     */
+    boolean startProgress(@NonNull ViewGroup container, View from, View to, boolean isPush, @NonNull ProgressListener progressListener);
+
+    /**
+     * Moves the interactive change to the passed progress, from 0 to 1. Does nothing once the change has been
+     * committed or cancelled.
+     */
+    void setProgress(float progress);
+
+    /**
+     * Commits the interactive change, which will finish from its current progress.
+     */
+    void commit();
+
+    /**
+     * Cancels the interactive change, returning it to its starting state.
+     */
+    void cancel();
+
+}
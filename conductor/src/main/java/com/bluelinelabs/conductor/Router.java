@@ -1,18 +1,24 @@
 package com.bluelinelabs.conductor;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Parcel;
 import android.support.annotation.NonNull;
 import android.view.View;
 import android.view.ViewGroup;
 
 import com.bluelinelabs.conductor.Controller.LifecycleListener;
 import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
+import com.bluelinelabs.conductor.changehandler.ReusableAnimator;
 import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
+import com.bluelinelabs.conductor.internal.BitmapPool;
 import com.bluelinelabs.conductor.internal.LifecycleHandler;
 import com.bluelinelabs.conductor.internal.NoOpControllerChangeHandler;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -24,11 +30,73 @@ import java.util.List;
  */
 public class Router {
 
+    private static final String KEY_STORED_STATE = "Router.storedState";
+    private static final String KEY_STORED_STATE_FALLBACK = "Router.storedStateFallback";
+    private static final String KEY_SAVED_STATE_CACHING = "Router.savedStateCaching";
+
     private final Backstack mBackStack = new Backstack();
     private LifecycleHandler mLifecycleHandler;
     private ViewGroup mContainer;
     private final List<ControllerChangeListener> mChangeListeners = new ArrayList<>();
     private final List<Controller> mDestroyingControllers = new ArrayList<>();
+    private final LifecycleListener mDestroyingControllerListener = new LifecycleListener() {
+        @Override
+        public void postDestroy(@NonNull Controller controller) {
+            mDestroyingControllers.remove(controller);
+        }
+    };
+    private DestructionQueue mDestructionQueue;
+    private ChangeQueue mChangeQueue;
+    private RouterTransaction mInteractivePopTransaction;
+    private ControllerChangeHandler.StartedChange mInteractivePopChange;
+    private final ProgressiveChangeHandler.ProgressListener mInteractivePopListener = new ProgressiveChangeHandler.ProgressListener() {
+        @Override
+        public void onProgressCommitted(@NonNull ProgressiveChangeHandler changeHandler) {
+            RouterTransaction transaction = mInteractivePopTransaction;
+            ControllerChangeHandler.StartedChange change = mInteractivePopChange;
+            mInteractivePopTransaction = null;
+            mInteractivePopChange = null;
+
+            if (transaction != null && mBackStack.peek() == transaction) {
+                // The change already started, so it's finished directly rather than being executed or queued again
+                destroyController(mBackStack.pop());
+                change.perform();
+            }
+        }
+
+        @Override
+        public void onProgressCancelled(@NonNull ProgressiveChangeHandler changeHandler) {
+            ControllerChangeHandler.StartedChange change = mInteractivePopChange;
+            mInteractivePopTransaction = null;
+            mInteractivePopChange = null;
+
+            if (change != null) {
+                change.onChangeCompleted();
+                change.to.releaseUnusedView();
+            }
+        }
+    };
+    private boolean mSavedStateCachingEnabled;
+    private StateStore mStateStore;
+    private File mStoredStateFile;
+    private ViewRetentionCache mViewRetentionCache;
+    private ViewPool mViewPool;
+    private boolean mHibernateOnTrimMemory;
+    private int mHibernationDepth;
+    private boolean mStateSizeReportingEnabled;
+    private StateSizeReport mStateSizeReport;
+    private StateSizeReport.OnWarningListener mStateSizeWarningListener;
+    private int mTotalSizeWarningBytes;
+    private int mControllerSizeWarningBytes;
+
+    public Router() {
+        mBackStack.setOnTransactionRestoredListener(new Backstack.OnTransactionRestoredListener() {
+            @Override
+            public void onTransactionRestored(@NonNull RouterTransaction transaction) {
+                transaction.controller.setRouter(Router.this);
+            }
+        });
+    }
 
     /**
      * Returns this Router's host Activity
@@ -94,6 +162,51 @@ public class Router {
         return popController(mBackStack.peek().controller);
     }
 
+    /**
+     * Starts popping the top {@link Controller} interactively, such as for a drag or back gesture. The Controller
+     * beneath it has its View added under the top one, and the returned handler can then be driven with
+     * {@link ProgressiveChangeHandler#setProgress(float)}. Both Controllers and all change listeners are notified
+     * that the change started right away, and that it ended once it's either finished after being committed, or
+     * has settled back after being cancelled. The backstack is only updated if the handler is committed. If it's
+     * cancelled instead, the backstack is left as it was and the lower Controller's View is released again unless
+     * it's retained. The backstack should not be changed while an interactive pop is in progress.
+     *
+     * @return The top Controller's pop handler, or null if there's no Controller to pop to, the pop handler isn't a
+     *         {@link ProgressiveChangeHandler} or can't drive this change, the top Controller's View isn't in place
+     *         yet, or another interactive pop is already in progress.
+     */
+    public ProgressiveChangeHandler startInteractivePop() {
+        RouterTransaction topTransaction = mBackStack.peek();
+        if (topTransaction == null || mContainer == null || mInteractivePopTransaction != null) {
+            return null;
+        }
+
+        ControllerChangeHandler changeHandler = topTransaction.getPopControllerChangeHandler();
+        View fromView = topTransaction.controller.getView();
+        if (!(changeHandler instanceof ProgressiveChangeHandler) || fromView == null || fromView.getParent() != mContainer) {
+            return null;
+        }
+
+        RouterTransaction toTransaction = mBackStack.peekBelowTop();
+        if (toTransaction == null) {
+            return null;
+        }
+
+        Controller toController = toTransaction.controller;
+        toController.setRouter(this);
+        View toView = toController.inflate(mContainer);
+
+        ProgressiveChangeHandler progressiveHandler = (ProgressiveChangeHandler)changeHandler;
+        if (!progressiveHandler.startProgress(mContainer, fromView, toView, false, mInteractivePopListener)) {
+            toController.releaseUnusedView();
+            return null;
+        }
+
+        mInteractivePopTransaction = topTransaction;
+        mInteractivePopChange = ControllerChangeHandler.startChange(toController, topTransaction.controller, false, mContainer, changeHandler, mChangeListeners);
+        return progressiveHandler;
+    }
+
     /**
      * Pops the passed {@link Controller} from the backstack
      *
@@ -105,7 +218,7 @@ public class Router {
         boolean poppingTopController = topController.controller == controller;
 
         if (poppingTopController) {
-            trackDestroyingController(mBackStack.pop());
+            destroyController(mBackStack.pop());
         } else {
             for (RouterTransaction transaction : mBackStack) {
                 if (transaction.controller == controller) {
@@ -132,6 +245,7 @@ public class Router {
         RouterTransaction from = mBackStack.peek();
         pushToBackstack(transaction);
         performControllerChange(transaction, from, true);
+        hibernateIfNeeded();
     }
 
     /**
@@ -143,11 +257,12 @@ public class Router {
     public void replaceTopController(@NonNull RouterTransaction transaction) {
         RouterTransaction topTransaction = mBackStack.peek();
         if (!mBackStack.isEmpty()) {
-            trackDestroyingController(mBackStack.pop());
+            destroyController(mBackStack.pop());
         }
 
         pushToBackstack(transaction);
         performControllerChange(transaction, topTransaction, true);
+        hibernateIfNeeded();
     }
 
     /**
@@ -192,11 +307,10 @@ public class Router {
      * @return Whether or not the {@link Controller} with the passed tag is now at the top
      */
     public boolean popToTag(@NonNull String tag, ControllerChangeHandler changeHandler) {
-        for (RouterTransaction transaction : mBackStack) {
-            if (tag.equals(transaction.tag)) {
-                popToTransaction(transaction, changeHandler);
-                return true;
-            }
+        RouterTransaction transaction = mBackStack.getTransactionWithTag(tag);
+        if (transaction != null) {
+            popToTransaction(transaction, changeHandler);
+            return true;
         }
         return false;
     }
@@ -252,7 +366,7 @@ public class Router {
             }
         }
 
-        trackDestroyingControllers(mBackStack.popAll());
+        destroyControllers(mBackStack.popAll());
 
         RouterTransaction transaction = RouterTransaction.builder(controller)
                 .tag(tag)
@@ -264,6 +378,344 @@ public class Router {
         performControllerChange(transaction, currentTop, true);
     }
 
+    /**
+     * Replaces this Router's entire backstack in a single step, performing only one change between the old and new
+     * top {@link Controller}s.
+     *
+     * @param newBackstack The new backstack, ordered from the root to the top
+     */
+    public void setBackstack(@NonNull List<RouterTransaction> newBackstack) {
+        setBackstack(newBackstack, null);
+    }
+
+    /**
+     * Replaces this Router's entire backstack in a single step. {@link Controller}s that are no longer present are
+     * destroyed, {@link Controller}s that are not on top are added without ever having their views created, and a
+     * single change is performed between the previous top and the new top. This is useful for deep links or any
+     * other case where several pushes or pops would otherwise each inflate and animate their own views.
+     *
+     * @param newBackstack The new backstack, ordered from the root to the top
+     * @param changeHandler The {@link ControllerChangeHandler} to use for the change between the old and new
+     *                      top {@link Controller}s. If null, the new top's push handler will be used if it was
+     *                      not previously in the backstack, or the old top's pop handler otherwise.
+     */
+    public void setBackstack(@NonNull List<RouterTransaction> newBackstack, ControllerChangeHandler changeHandler) {
+        RouterTransaction oldTop = mBackStack.peek();
+        RouterTransaction newTop = newBackstack.size() > 0 ? newBackstack.get(newBackstack.size() - 1) : null;
+        // Entries that are still lazily restored or hibernated have no Controllers to destroy, so they're simply dropped.
+        List<RouterTransaction> oldBackstack = getLiveBackstack();
+
+        mBackStack.setBackstack(newBackstack);
+
+        for (RouterTransaction transaction : newBackstack) {
+            transaction.controller.setRouter(this);
+        }
+
+        for (RouterTransaction transaction : oldBackstack) {
+            if (!newBackstack.contains(transaction)) {
+                destroyController(transaction);
+            }
+        }
+
+        if (newTop != oldTop) {
+            boolean isPush = newTop != null && !oldBackstack.contains(newTop);
+            if (changeHandler == null) {
+                if (isPush) {
+                    changeHandler = newTop.getPushControllerChangeHandler();
+                } else if (oldTop != null) {
+                    changeHandler = oldTop.getPopControllerChangeHandler();
+                }
+            }
+
+            performControllerChange(newTop != null ? newTop.controller : null, oldTop != null ? oldTop.controller : null, isPush,
+                    changeHandler != null ? changeHandler : new SimpleSwapChangeHandler());
+        }
+
+        hibernateIfNeeded();
+    }
+
+    /**
+     * Enables or disables deferred destruction of {@link Controller}s that leave the backstack without being on
+     * screen, such as the intermediate {@link Controller}s removed by {@link #popToRoot()}. When enabled, their
+     * onDestroyView and onDestroy callbacks are run in small slices while the main thread is idle instead of in
+     * the same frame as the change. Any pending destructions are run immediately when disabling or when the
+     * host Activity is destroyed.
+     *
+     * @param deferDestruction True if destruction should be deferred until the main thread is idle
+     */
+    public void setDeferControllerDestruction(boolean deferDestruction) {
+        setDeferControllerDestruction(deferDestruction, DestructionQueue.DEFAULT_SLICE_BUDGET_MILLIS);
+    }
+
+    /**
+     * Enables or disables deferred destruction of {@link Controller}s that leave the backstack without being on
+     * screen.
+     *
+     * @param deferDestruction True if destruction should be deferred until the main thread is idle
+     * @param sliceBudgetMillis The maximum amount of time, in milliseconds, to spend destroying Controllers each
+     *                          time the main thread goes idle
+     */
+    public void setDeferControllerDestruction(boolean deferDestruction, long sliceBudgetMillis) {
+        if (mDestructionQueue != null) {
+            mDestructionQueue.flush();
+            mDestructionQueue = null;
+        }
+
+        if (deferDestruction) {
+            mDestructionQueue = new DestructionQueue(sliceBudgetMillis);
+        }
+    }
+
+    /**
+     * Enables or disables queueing of changes. When enabled, a change requested while another one is still running,
+     * such as a push while the previous push is animating, waits for the running one to complete instead of
+     * overlapping it. Consecutive queued changes are coalesced, so pushing B, C and D while the change to B is
+     * running results in a single change from B to D. Running changes are asked to complete immediately through
+     * {@link ControllerChangeHandler#completeImmediately()} when they are superseded. Any queued changes are run
+     * immediately when disabling.
+     *
+     * @param queueChanges True if changes should be queued and coalesced
+     */
+    public void setChangeQueueEnabled(boolean queueChanges) {
+        if (queueChanges && mChangeQueue == null) {
+            mChangeQueue = new ChangeQueue(new ChangeQueue.ChangeExecutor() {
+                @Override
+                public void executeChange(Controller to, Controller from, boolean isPush, @NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeListener completionListener) {
+                    if (mContainer != null) {
+                        List<ControllerChangeListener> listeners = new ArrayList<>(mChangeListeners);
+                        listeners.add(completionListener);
+                        ControllerChangeHandler.executeChange(to, from, isPush, mContainer, changeHandler, listeners);
+                    }
+                }
+            });
+        } else if (!queueChanges && mChangeQueue != null) {
+            ChangeQueue changeQueue = mChangeQueue;
+            mChangeQueue = null;
+            changeQueue.flush();
+        }
+    }
+
+    /**
+     * Enables or disables lazy restoration of this Router's backstack. When enabled, the next time this Router is
+     * restored from a saved state (ex: after process death), only the {@link Controller}s that need to be displayed
+     * will be created. All others are kept in their saved form until they become the top of the backstack, are
+     * looked up by tag or instance ID, or receive a result. This setting is retained as part of the saved state.
+     *
+     * @param lazyRestoreEnabled True if {@link Controller}s should be restored lazily
+     */
+    public void setLazyRestoreEnabled(boolean lazyRestoreEnabled) {
+        mBackStack.setLazyRestoreEnabled(lazyRestoreEnabled);
+    }
+
+    /**
+     * Enables or disables caching of each {@link Controller}'s saved state. When enabled, saving this Router's
+     * state will reuse the previously saved state of any {@link Controller} that hasn't changed since, so that the
+     * cost of saving depends on what has changed rather than on the size of the backstack. {@link Controller}s
+     * that keep state in onSaveInstanceState must call {@link Controller#invalidateSavedState()} whenever that
+     * state changes, as must {@link ControllerChangeHandler}s that keep state in saveToBundle with
+     * {@link ControllerChangeHandler#invalidateSavedState()}. This setting is retained as part of the saved state,
+     * so that restored {@link Controller}s can reuse the state they were restored from.
+     *
+     * @param savedStateCachingEnabled True if saved state should be cached
+     */
+    public void setSavedStateCachingEnabled(boolean savedStateCachingEnabled) {
+        mSavedStateCachingEnabled = savedStateCachingEnabled;
+    }
+
+    /**
+     * Returns whether or not saved state caching has been enabled with {@link #setSavedStateCachingEnabled(boolean)}.
+     */
+    public boolean isSavedStateCachingEnabled() {
+        return mSavedStateCachingEnabled;
+    }
+
+    /**
+     * Sets the {@link StateStore} used to keep oversized saved state out of the Activity's saved instance state.
+     * Measuring the saved state requires parceling it one extra time, so this is best reserved for Routers that
+     * are expected to have large backstacks. Stored state is restored even if no StateStore is set on the
+     * restored Router, in which case its file is deleted the next time the Router's state is saved. If a file
+     * is missing when the Router is restored, only the top Controller is restored from a copy kept in the saved
+     * instance state, as long as that copy fits within the StateStore's threshold.
+     *
+     * @param stateStore The StateStore to use, or null to always keep state in the saved instance state
+     */
+    public void setStateStore(StateStore stateStore) {
+        mStateStore = stateStore;
+    }
+
+    /**
+     * Enables least recently used retention of detached views for all {@link Controller}s in this Router that use
+     * {@link Controller.RetainViewMode#RELEASE_DETACH}. Instead of being released as soon as they are detached,
+     * their views are kept until more than the passed number of views are retained or their estimated memory use
+     * exceeds the passed budget. Views are then released, starting from the least recently shown one, the same
+     * way they would have been when detached. Controllers using {@link Controller.RetainViewMode#RETAIN_DETACH}
+     * continue to always retain their views.
+     *
+     * @param maxViews The maximum number of detached views to retain, or 0 to disable LRU retention
+     * @param maxEstimatedBytes The estimated memory budget for retained views, or 0 for no memory limit
+     */
+    public void setLruViewRetention(int maxViews, long maxEstimatedBytes) {
+        if (maxViews > 0) {
+            if (mViewRetentionCache == null) {
+                mViewRetentionCache = new ViewRetentionCache(maxViews, maxEstimatedBytes);
+            } else {
+                mViewRetentionCache.setLimits(maxViews, maxEstimatedBytes);
+            }
+        } else if (mViewRetentionCache != null) {
+            ViewRetentionCache viewRetentionCache = mViewRetentionCache;
+            mViewRetentionCache = null;
+            viewRetentionCache.releaseAll();
+        }
+    }
+
+    /**
+     * Returns the number of times a detached view retained by LRU view retention was reused.
+     */
+    public int getViewRetentionHits() {
+        return mViewRetentionCache != null ? mViewRetentionCache.getHits() : 0;
+    }
+
+    /**
+     * Returns the number of times a view had to be recreated while LRU view retention was enabled because it had
+     * already been released.
+     */
+    public int getViewRetentionMisses() {
+        return mViewRetentionCache != null ? mViewRetentionCache.getMisses() : 0;
+    }
+
+    /**
+     * Enables pooling of released views for {@link Controller}s in this Router that return a key from
+     * {@link Controller#getViewPoolKey()}. Once such a Controller's view is released, it is kept in the pool and
+     * handed to the next Controller with the same key through {@link Controller#onBindView(View)}, rather than
+     * being created again. Views of Controllers with child Controllers are never pooled.
+     *
+     * @param maxViews The maximum number of views kept in the pool, or 0 to disable pooling
+     * @param maxViewsPerKey The maximum number of views kept in the pool for any one key
+     */
+    public void setViewPool(int maxViews, int maxViewsPerKey) {
+        if (maxViews > 0 && maxViewsPerKey > 0) {
+            if (mViewPool == null) {
+                mViewPool = new ViewPool(maxViews, maxViewsPerKey);
+            } else {
+                mViewPool.setLimits(maxViews, maxViewsPerKey);
+            }
+        } else if (mViewPool != null) {
+            mViewPool.clear();
+            mViewPool = null;
+        }
+    }
+
+    /**
+     * Returns the number of times a pooled view was reused instead of being created.
+     */
+    public int getViewPoolHits() {
+        return mViewPool != null ? mViewPool.getHits() : 0;
+    }
+
+    /**
+     * Returns the number of times a view had to be created while view pooling was enabled because the pool had
+     * no view for its key.
+     */
+    public int getViewPoolMisses() {
+        return mViewPool != null ? mViewPool.getMisses() : 0;
+    }
+
+    /**
+     * Starts creating the view of the passed transaction's {@link Controller} on a background thread, so that it
+     * is ready by the time the transaction is pushed. The Controller's {@link Controller#onCreateView} will be
+     * called on that background thread. If the view isn't finished by the time it's needed, the prefetch is
+     * cancelled and the view is created synchronously as usual, without waiting for the background thread.
+     *
+     * @param transaction The transaction that is about to be pushed onto this Router
+     */
+    public void prefetch(@NonNull RouterTransaction transaction) {
+        if (mContainer != null) {
+            transaction.controller.setRouter(this);
+            transaction.controller.prefetchView(mContainer);
+        }
+    }
+
+    /**
+     * Cancels a prefetch started with {@link #prefetch(RouterTransaction)} and discards its view.
+     *
+     * @param transaction The transaction that was prefetched
+     */
+    public void cancelPrefetch(@NonNull RouterTransaction transaction) {
+        transaction.controller.cancelPrefetch();
+    }
+
+    /**
+     * Sets the hibernation depth for this Router's backstack. After each push, every entry deeper than this depth
+     * has its {@link Controller} saved, the same way it would be when the Activity's state is saved, and the
+     * {@link Controller} instance destroyed, so anything bound to its lifecycle is released as well. Hibernated
+     * entries are transparently restored as new instances when they are popped back to or looked up by tag or
+     * instance ID, so references to {@link Controller}s beneath the hibernation depth should not be kept
+     * elsewhere. This bounds the memory used by long backstacks.
+     *
+     * @param hibernationDepth The number of entries, counting from the top, to keep live, or 0 to disable hibernation
+     */
+    public void setHibernationDepth(int hibernationDepth) {
+        mHibernationDepth = hibernationDepth;
+        hibernateIfNeeded();
+    }
+
+    /**
+     * Sets whether or not {@link Controller}s beneath the top of the backstack should be hibernated when the system
+     * is running low on memory. Hibernated {@link Controller}s are saved and destroyed, and are restored as
+     * new instances when they are needed again, so references to them should not be kept elsewhere. Defaults to
+     * false.
+     *
+     * @param hibernateOnTrimMemory True if the backstack should be hibernated on TRIM_MEMORY_MODERATE or higher
+     */
+    public void setHibernateOnTrimMemory(boolean hibernateOnTrimMemory) {
+        mHibernateOnTrimMemory = hibernateOnTrimMemory;
+    }
+
+    /**
+     * Enables or disables measuring this Router's saved state each time it is saved. The results can be
+     * retrieved with {@link #getStateSizeReport()}. Measuring requires parceling the saved state an extra time,
+     * so this should generally only be enabled in debug builds.
+     *
+     * @param stateSizeReportingEnabled True if saved state should be measured
+     */
+    public void setStateSizeReportingEnabled(boolean stateSizeReportingEnabled) {
+        mStateSizeReportingEnabled = stateSizeReportingEnabled;
+    }
+
+    /**
+     * Returns the {@link StateSizeReport} from the last time this Router's state was saved, or null if state size
+     * reporting wasn't enabled at the time.
+     */
+    public StateSizeReport getStateSizeReport() {
+        return mStateSizeReport;
+    }
+
+    /**
+     * Sets a listener that will be notified when this Router's saved state is larger than the passed thresholds.
+     * Setting a listener enables state size reporting.
+     *
+     * @param listener The listener, or null to remove the current one
+     * @param totalWarningBytes The size of the entire saved backstack above which the listener will be notified
+     * @param controllerWarningBytes The size of any single {@link Controller}'s saved state, not counting its children,
+     *                               above which the listener will be notified
+     */
+    public void setStateSizeWarningListener(StateSizeReport.OnWarningListener listener, int totalWarningBytes, int controllerWarningBytes) {
+        mStateSizeWarningListener = listener;
+        mTotalSizeWarningBytes = totalWarningBytes;
+        mControllerSizeWarningBytes = controllerWarningBytes;
+    }
+
+    /**
+     * Returns a copy of this Router's current backstack, ordered from the root to the top. Every entry that was
+     * lazily restored or hibernated is restored first, so {@link #getBackstackSize()},
+     * {@link #getControllerWithTag(String)}, or {@link #getControllerWithInstanceId(String)} should be preferred
+     * when only part of the backstack is needed.
+     */
+    public List<RouterTransaction> getBackstack() {
+        mBackStack.restoreLazyEntries();
+        return getLiveBackstack();
+    }
+
     /**
      * Returns the hosted Controller with the given instance id, if available.
      *
@@ -271,17 +723,7 @@ public class Router {
      * @return The matching Controller, if one exists
      */
     public Controller getControllerWithInstanceId(String instanceId) {
-        for (ControllerTransaction transaction : mBackStack) {
-            if (transaction.controller.getInstanceId().equals(instanceId)) {
-                return transaction.controller;
-            } else {
-                Controller childWithId = transaction.controller.getChildControllerWithInstanceId(instanceId);
-                if (childWithId != null) {
-                    return childWithId;
-                }
-            }
-        }
-        return null;
+        return mBackStack.getControllerWithInstanceId(instanceId);
     }
 
     /**
@@ -291,12 +733,8 @@ public class Router {
      * @return The matching Controller, if one exists
      */
     public Controller getControllerWithTag(String tag) {
-        for (ControllerTransaction transaction : mBackStack) {
-            if (tag.equals(transaction.tag)) {
-                return transaction.controller;
-            }
-        }
-        return null;
+        RouterTransaction transaction = mBackStack.getTransactionWithTag(tag);
+        return transaction != null ? transaction.controller : null;
     }
 
     /**
@@ -376,33 +814,214 @@ public class Router {
             transaction.controller.prepareForActivityPause();
         }
 
-        mBackStack.detachAndSaveInstanceState(outState);
+        Bundle backstackState = mStateStore != null ? new Bundle() : outState;
+        mBackStack.detachAndSaveInstanceState(backstackState);
+
+        if (mStateSizeReportingEnabled || mStateSizeWarningListener != null) {
+            reportStateSize(backstackState);
+        }
+
+        if (mStateStore != null) {
+            saveToStateStore(activity, backstackState, outState);
+        } else if (mStoredStateFile != null) {
+            // The state this Router was restored from has been superseded by state that isn't stored.
+            StateStore.release(mStoredStateFile);
+            mStoredStateFile = null;
+        }
+
+        outState.putBoolean(KEY_SAVED_STATE_CACHING, mSavedStateCachingEnabled);
+    }
+
+    /**
+     * Releases resources held for {@link Controller}s that aren't visible, escalating with memory pressure. Trim
+     * levels aren't ordered by severity, so TRIM_MEMORY_UI_HIDDEN, which is sent every time the app leaves the
+     * foreground, doesn't release anything.
+     * <ul>
+     *     <li>TRIM_MEMORY_RUNNING_LOW, TRIM_MEMORY_RUNNING_CRITICAL, and TRIM_MEMORY_BACKGROUND and up: releases all
+     *     detached views, including those retained by {@link Controller.RetainViewMode#RETAIN_DETACH} or LRU view
+     *     retention, destroys any Controllers awaiting deferred destruction, and empties the shared Bitmap and
+     *     Animator pools used by change handlers</li>
+     *     <li>TRIM_MEMORY_RUNNING_CRITICAL, and TRIM_MEMORY_MODERATE and up: also stores the view state of
+     *     Controllers without views in marshalled form and drops cached saved state</li>
+     *     <li>TRIM_MEMORY_MODERATE and up: also hibernates everything beneath the top of the backstack, if enabled
+     *     with {@link #setHibernateOnTrimMemory(boolean)}, destroying the hibernated Controllers</li>
+     * </ul>
+     * Every {@link Controller} is notified through {@link Controller#onTrimMemory(int)} first.
+     */
+    public final void onTrimMemory(int level) {
+        for (RouterTransaction transaction : mBackStack) {
+            transaction.controller.trimMemory(level);
+        }
+
+        boolean runningLow = level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL;
+        boolean runningCritical = level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL;
+        boolean inBackground = level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+
+        if (runningLow || inBackground) {
+            if (mDestructionQueue != null) {
+                mDestructionQueue.flush();
+            }
+
+            if (mViewRetentionCache != null) {
+                mViewRetentionCache.releaseAll();
+            }
+
+            for (RouterTransaction transaction : mBackStack) {
+                transaction.controller.releaseDetachedViews();
+            }
+
+            if (mViewPool != null) {
+                mViewPool.clear();
+            }
+
+            BitmapPool.clear();
+            ReusableAnimator.clearPool();
+        }
+
+        if (runningCritical || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            for (RouterTransaction transaction : mBackStack) {
+                transaction.clearSavedStateCache();
+                transaction.controller.compactViewState();
+            }
+        }
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE && mHibernateOnTrimMemory) {
+            mBackStack.hibernate(1);
+        }
     }
 
     public final void onActivityDestroyed(Activity activity) {
         mContainer.setOnHierarchyChangeListener(null);
         mChangeListeners.clear();
+        mInteractivePopTransaction = null;
+        mInteractivePopChange = null;
+
+        if (mChangeQueue != null) {
+            mChangeQueue.clear();
+        }
+
+        if (mDestructionQueue != null) {
+            mDestructionQueue.flush();
+        }
 
         for (RouterTransaction transaction : mBackStack) {
             transaction.controller.activityDestroyed(activity.isChangingConfigurations());
         }
 
-        for (Controller controller : mDestroyingControllers) {
+        for (Controller controller : new ArrayList<>(mDestroyingControllers)) {
             controller.activityDestroyed(activity.isChangingConfigurations());
         }
 
+        // Pooled views belong to this Activity
+        if (mViewPool != null) {
+            mViewPool.clear();
+        }
+
+        if (mStoredStateFile != null && activity.isFinishing()) {
+            StateStore.release(mStoredStateFile);
+            mStoredStateFile = null;
+        }
+
         mLifecycleHandler = null;
         mContainer = null;
     }
 
     public final void onRestoreInstanceState(Bundle savedInstanceState) {
+        mSavedStateCachingEnabled = savedInstanceState.getBoolean(KEY_SAVED_STATE_CACHING);
+
+        String storedStatePath = savedInstanceState.getString(KEY_STORED_STATE);
+        if (storedStatePath != null) {
+            mStoredStateFile = new File(storedStatePath);
+            Bundle storedState = readFromStateStore(mStoredStateFile);
+            if (storedState != null) {
+                savedInstanceState = storedState;
+            } else {
+                // The file can be gone if the user cleared the app's cache, so only the top Controller can be restored.
+                mStoredStateFile = null;
+                savedInstanceState = savedInstanceState.getBundle(KEY_STORED_STATE_FALLBACK);
+                if (savedInstanceState == null) {
+                    throw new IllegalStateException("The saved state stored in " + storedStatePath + " is missing and no fallback was saved.");
+                }
+            }
+        }
+
         mBackStack.restoreInstanceState(savedInstanceState);
+
+        for (RouterTransaction transaction : mBackStack) {
+            transaction.controller.setRouter(this);
+        }
+    }
+
+    private void reportStateSize(@NonNull Bundle backstackState) {
+        mStateSizeReport = Backstack.createStateSizeReport(backstackState);
+
+        if (mStateSizeWarningListener != null) {
+            if (mStateSizeReport.totalBytes > mTotalSizeWarningBytes || !mStateSizeReport.getControllersLargerThan(mControllerSizeWarningBytes).isEmpty()) {
+                mStateSizeWarningListener.onStateSizeWarning(this, mStateSizeReport);
+            }
+        }
+    }
+
+    private void saveToStateStore(@NonNull Activity activity, @NonNull Bundle backstackState, @NonNull Bundle outState) {
+        byte[] data;
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(backstackState);
+            data = parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+
+        File previousFile = mStoredStateFile;
+        if (data.length > mStateStore.getThresholdBytes()) {
+            try {
+                mStoredStateFile = mStateStore.write(data, activity.getTaskId());
+                outState.putString(KEY_STORED_STATE, mStoredStateFile.getAbsolutePath());
+
+                // Allows at least the top Controller to be restored if the file goes missing.
+                Bundle fallbackState = Backstack.copyTopEntryState(backstackState);
+                if (fallbackState != null && StateSizeReport.sizeOf(fallbackState) <= mStateStore.getThresholdBytes()) {
+                    outState.putBundle(KEY_STORED_STATE_FALLBACK, fallbackState);
+                }
+            } catch (IOException e) {
+                // Keeping the state in the Bundle may still succeed, so that's better than losing it.
+                mStoredStateFile = null;
+                outState.putAll(backstackState);
+            }
+        } else {
+            mStoredStateFile = null;
+            outState.putAll(backstackState);
+        }
+
+        if (previousFile != null) {
+            StateStore.release(previousFile);
+        }
+
+        if (mStoredStateFile != null) {
+            mStateStore.collectGarbage(activity);
+        }
+    }
+
+    private static Bundle readFromStateStore(@NonNull File file) {
+        byte[] data = StateStore.read(file);
+        if (data == null) {
+            return null;
+        }
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            return parcel.readBundle(Router.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
     }
 
     private void popToTransaction(@NonNull RouterTransaction transaction, ControllerChangeHandler changeHandler) {
         RouterTransaction topTransaction = mBackStack.peek();
         List<RouterTransaction> poppedTransactions = mBackStack.popTo(transaction);
-        trackDestroyingControllers(poppedTransactions);
+        destroyControllers(poppedTransactions);
 
         if (poppedTransactions.size() > 0) {
             if (changeHandler == null) {
@@ -432,6 +1051,22 @@ public class Router {
         return mLifecycleHandler;
     }
 
+    final ViewPool getViewPool() {
+        return mViewPool;
+    }
+
+    final ViewRetentionCache getViewRetentionCache() {
+        return mViewRetentionCache;
+    }
+
+    final void onChildControllerAdded(@NonNull Controller parent, @NonNull Controller child) {
+        mBackStack.onChildControllerAdded(parent, child);
+    }
+
+    final void onChildControllerRemoved(@NonNull Controller child) {
+        mBackStack.onChildControllerRemoved(child);
+    }
+
     public final Boolean handleRequestedPermission(@NonNull String permission) {
         for (ControllerTransaction transaction : mBackStack) {
             if (transaction.controller.didRequestPermission(permission)) {
@@ -468,31 +1103,55 @@ public class Router {
         }
 
         if (mContainer != null) {
-            ControllerChangeHandler.executeChange(to, from, isPush, mContainer, changeHandler, mChangeListeners);
+            if (mChangeQueue != null) {
+                mChangeQueue.enqueue(to, from, isPush, changeHandler);
+            } else {
+                ControllerChangeHandler.executeChange(to, from, isPush, mContainer, changeHandler, mChangeListeners);
+            }
+        }
+
+    }
+
+    private List<RouterTransaction> getLiveBackstack() {
+        List<RouterTransaction> list = new ArrayList<>(mBackStack.size());
+        Iterator<RouterTransaction> backstackIterator = mBackStack.reverseIterator();
+        while (backstackIterator.hasNext()) {
+            list.add(backstackIterator.next());
         }
+        return list;
+    }
 
+    private void hibernateIfNeeded() {
+        if (mHibernationDepth > 0) {
+            mBackStack.hibernate(mHibernationDepth);
+        }
     }
 
     private void pushToBackstack(@NonNull RouterTransaction entry) {
+        entry.controller.setRouter(this);
         mBackStack.push(entry);
     }
 
-    private void trackDestroyingController(RouterTransaction transaction) {
-        if (!transaction.controller.isDestroyed()) {
-            mDestroyingControllers.add(transaction.controller);
+    private void destroyController(RouterTransaction transaction) {
+        Controller controller = transaction.controller;
 
-            transaction.controller.addLifecycleListener(new LifecycleListener() {
-                @Override
-                public void postDestroy(@NonNull Controller controller) {
-                    mDestroyingControllers.remove(controller);
-                }
-            });
+        // Controllers that are still attached are being animated out, so they'll finish being destroyed as soon as
+        // their views are removed. Everything else can wait for the main thread to be idle if deferral is enabled.
+        if (mDestructionQueue != null && !controller.isAttached()) {
+            mDestructionQueue.enqueue(controller);
+        } else {
+            controller.destroy();
+        }
+
+        if (!controller.isDestroyed()) {
+            mDestroyingControllers.add(controller);
+            controller.addLifecycleListener(mDestroyingControllerListener);
         }
     }
 
-    private void trackDestroyingControllers(List<RouterTransaction> transactions) {
+    private void destroyControllers(List<RouterTransaction> transactions) {
         for (RouterTransaction transaction : transactions) {
-            trackDestroyingController(transaction);
+            destroyController(transaction);
         }
     }
 
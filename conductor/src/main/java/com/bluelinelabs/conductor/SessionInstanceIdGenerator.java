@@ -0,0 +1,33 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default {@link InstanceIdGenerator}. Each ID is made up of a random prefix chosen once per process and a
+ * counter, both encoded in base 36. IDs restored from a previous process will have a different prefix, so they
+ * can't collide with newly generated ones. This avoids the cost of UUID.randomUUID(), which uses SecureRandom.
+ */
+class SessionInstanceIdGenerator implements InstanceIdGenerator {
+
+    private final String mPrefix;
+    private final AtomicLong mCounter = new AtomicLong();
+
+    SessionInstanceIdGenerator() {
+        this(new Random().nextLong() ^ System.currentTimeMillis());
+    }
+
+    SessionInstanceIdGenerator(long sessionSeed) {
+        // Base 36 never contains a '-', so the separator can't be ambiguous.
+        mPrefix = Long.toString(sessionSeed & Long.MAX_VALUE, Character.MAX_RADIX) + "-";
+    }
+
+    @NonNull
+    @Override
+    public String newInstanceId() {
+        return mPrefix + Long.toString(mCounter.incrementAndGet(), Character.MAX_RADIX);
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A breakdown of how large a {@link Router}'s saved state was the last time it was saved, in marshalled bytes.
+ * Reporting can be enabled with {@link Router#setStateSizeReportingEnabled(boolean)} or
+ * {@link Router#setStateSizeWarningListener(OnWarningListener, int, int)}.
+ */
+public class StateSizeReport {
+
+    /** The size of the Router's entire saved backstack */
+    public final int totalBytes;
+
+    /** The sizes of every saved {@link Controller}, from the top of the backstack down. Children directly follow their parents. */
+    public final List<ControllerSize> controllerSizes;
+
+    StateSizeReport(int totalBytes, @NonNull List<ControllerSize> controllerSizes) {
+        this.totalBytes = totalBytes;
+        this.controllerSizes = Collections.unmodifiableList(controllerSizes);
+    }
+
+    /**
+     * Returns the combined size of all {@link Controller}s of each class, not counting their children.
+     */
+    @NonNull
+    public Map<String, Integer> getBytesByClass() {
+        Map<String, Integer> bytesByClass = new HashMap<>();
+        for (ControllerSize size : controllerSizes) {
+            Integer bytes = bytesByClass.get(size.className);
+            bytesByClass.put(size.className, (bytes != null ? bytes : 0) + size.getOwnBytes());
+        }
+        return bytesByClass;
+    }
+
+    /**
+     * Returns all {@link Controller}s whose own saved state, not counting their children, is larger than the
+     * passed size.
+     */
+    @NonNull
+    public List<ControllerSize> getControllersLargerThan(int bytes) {
+        List<ControllerSize> sizes = new ArrayList<>();
+        for (ControllerSize size : controllerSizes) {
+            if (size.getOwnBytes() > bytes) {
+                sizes.add(size);
+            }
+        }
+        return sizes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("StateSizeReport{totalBytes=").append(totalBytes);
+        for (ControllerSize size : controllerSizes) {
+            builder.append(", ").append(size);
+        }
+        return builder.append('}').toString();
+    }
+
+    static int sizeOf(Object value) {
+        if (value == null) {
+            return 0;
+        }
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeValue(value);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * The saved state size of a single {@link Controller}. Sizes are measured on each individual Bundle, so they
+     * may add up to more than the Router's total, which is saved in a more compact format.
+     */
+    public static class ControllerSize {
+
+        public final String className;
+        public final String instanceId;
+
+        /** The instance ID of this Controller's parent, if it is a child Controller */
+        public final String parentInstanceId;
+
+        /** The size of everything this Controller saved, including its children */
+        public final int totalBytes;
+        public final int argsBytes;
+        public final int viewHierarchyBytes;
+
+        /** The size of the state saved in {@link Controller#onSaveViewState} */
+        public final int viewStateBytes;
+
+        /** The size of the state saved in {@link Controller#onSaveInstanceState} and by lifecycle listeners */
+        public final int savedStateBytes;
+        public final int childrenBytes;
+
+        ControllerSize(String className, String instanceId, String parentInstanceId, int totalBytes, int argsBytes, int viewHierarchyBytes, int viewStateBytes, int savedStateBytes, int childrenBytes) {
+            this.className = className;
+            this.instanceId = instanceId;
+            this.parentInstanceId = parentInstanceId;
+            this.totalBytes = totalBytes;
+            this.argsBytes = argsBytes;
+            this.viewHierarchyBytes = viewHierarchyBytes;
+            this.viewStateBytes = viewStateBytes;
+            this.savedStateBytes = savedStateBytes;
+            this.childrenBytes = childrenBytes;
+        }
+
+        /**
+         * Returns the size of everything this Controller saved, not counting its children.
+         */
+        public int getOwnBytes() {
+            return totalBytes - childrenBytes;
+        }
+
+        @Override
+        public String toString() {
+            return className + "{instanceId=" + instanceId + ", totalBytes=" + totalBytes + ", argsBytes=" + argsBytes
+                    + ", viewHierarchyBytes=" + viewHierarchyBytes + ", viewStateBytes=" + viewStateBytes
+                    + ", savedStateBytes=" + savedStateBytes + ", childrenBytes=" + childrenBytes + "}";
+        }
+    }
+
+    /**
+     * Listener that is notified when a {@link Router}'s saved state grows beyond the thresholds it was
+     * registered with.
+     */
+    public interface OnWarningListener {
+        void onStateSizeWarning(@NonNull Router router, @NonNull StateSizeReport report);
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.bluelinelabs.conductor;
+
+import android.annotation.TargetApi;
+import android.app.ActivityManager;
+import android.app.ActivityManager.AppTask;
+import android.content.Context;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stores saved state that is too large to be kept in the Activity's saved instance state in files instead. Once
+ * set on a {@link Router} with {@link Router#setStateStore(StateStore)}, any saved backstack larger than the
+ * threshold will be written to a file, leaving only the path to that file in the saved instance state. Files
+ * are deleted once they have been replaced by a newer save or their Activity has finished. Each file is tagged with
+ * the task it was saved for, so files left behind by tasks that no longer exist can be deleted as well. Files are
+ * never deleted just for being old, as a task can stay in the recents list indefinitely.
+ */
+public class StateStore {
+
+    public static final int DEFAULT_THRESHOLD_BYTES = 256 * 1024;
+
+    private static final String DIRECTORY_NAME = "conductor-state";
+    private static final String FILE_EXTENSION = ".state";
+    private static final String TASK_ID_SEPARATOR = "_";
+    private static final int FILE_MAGIC = 0x436e6453;
+    private static final int HEADER_SIZE = 8;
+
+    private static final InstanceIdGenerator sFileNameGenerator = new SessionInstanceIdGenerator();
+    private static final Set<String> sFilesInUse = Collections.synchronizedSet(new HashSet<String>());
+
+    private final File mDirectory;
+    private final int mThresholdBytes;
+
+    /**
+     * Creates a StateStore that keeps its files in the app's cache directory and stores any state larger than
+     * {@link #DEFAULT_THRESHOLD_BYTES}.
+     */
+    public StateStore(@NonNull Context context) {
+        this(new File(context.getCacheDir(), DIRECTORY_NAME), DEFAULT_THRESHOLD_BYTES);
+    }
+
+    /**
+     * @param directory The directory in which files will be stored. This directory should not be used for anything else.
+     * @param thresholdBytes The size, in bytes, above which saved state will be written to a file
+     */
+    public StateStore(@NonNull File directory, int thresholdBytes) {
+        mDirectory = directory;
+        mThresholdBytes = thresholdBytes;
+    }
+
+    public int getThresholdBytes() {
+        return mThresholdBytes;
+    }
+
+    /**
+     * Writes the passed data to a new file.
+     *
+     * @param taskId The ID of the task the data was saved for, as returned by {@link android.app.Activity#getTaskId()}
+     * @return The file that was written
+     */
+    @NonNull
+    public File write(@NonNull byte[] data, int taskId) throws IOException {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Unable to create directory " + mDirectory);
+        }
+
+        File file = new File(mDirectory, taskId + TASK_ID_SEPARATOR + sFileNameGenerator.newInstanceId() + FILE_EXTENSION);
+        File tempFile = new File(mDirectory, file.getName() + ".tmp");
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(data.length);
+            out.write(data);
+        } finally {
+            out.close();
+        }
+
+        // Renaming ensures that a partially written file can never be read back.
+        if (!tempFile.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            throw new IOException("Unable to write " + file);
+        }
+
+        sFilesInUse.add(file.getAbsolutePath());
+
+        return file;
+    }
+
+    /**
+     * Deletes all files that belong to tasks that no longer exist. Apps can only list their own tasks on Lollipop
+     * and above, so nothing is deleted on older versions.
+     */
+    public void collectGarbage(@NonNull Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            collectGarbage(getExistingTaskIds(context));
+        }
+    }
+
+    /**
+     * Deletes all files that belong to tasks other than the passed ones and are not in use by the current process.
+     * Files whose task is unknown are kept.
+     *
+     * @param existingTaskIds The IDs of all of the app's tasks that still exist, including those in the recents list
+     */
+    public void collectGarbage(@NonNull Set<Integer> existingTaskIds) {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            Integer taskId = getTaskId(file);
+            if (taskId != null && !existingTaskIds.contains(taskId) && !sFilesInUse.contains(file.getAbsolutePath())) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads back data that was written by a StateStore. Files that have been read are considered to be in use
+     * until they are released.
+     *
+     * @return The data, or null if the file no longer exists or is not complete
+     */
+    @Nullable
+    public static byte[] read(@NonNull File file) {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+
+        sFilesInUse.add(file.getAbsolutePath());
+
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+                if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != buffer.remaining()) {
+                    return null;
+                }
+
+                byte[] data = new byte[buffer.remaining()];
+                buffer.get(data);
+                return data;
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Deletes a file that is no longer needed.
+     */
+    public static void release(@NonNull File file) {
+        sFilesInUse.remove(file.getAbsolutePath());
+
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    @Nullable
+    private static Integer getTaskId(@NonNull File file) {
+        String name = file.getName();
+        int separatorIndex = name.indexOf(TASK_ID_SEPARATOR);
+        if (separatorIndex <= 0) {
+            return null;
+        }
+
+        try {
+            return Integer.parseInt(name.substring(0, separatorIndex));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @NonNull
+    private static Set<Integer> getExistingTaskIds(@NonNull Context context) {
+        Set<Integer> taskIds = new HashSet<>();
+        List<AppTask> tasks = ((ActivityManager)context.getSystemService(Context.ACTIVITY_SERVICE)).getAppTasks();
+        for (AppTask task : tasks) {
+            try {
+                taskIds.add(task.getTaskInfo().persistentId);
+            } catch (IllegalArgumentException e) {
+                // The task was removed after it was listed.
+            }
+        }
+        return taskIds;
+    }
+
+}
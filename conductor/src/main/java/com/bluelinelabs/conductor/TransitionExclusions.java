@@ -0,0 +1,87 @@
+package com.bluelinelabs.conductor;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.annotation.IdRes;
+import android.support.annotation.NonNull;
+import android.transition.Transition;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parts of a {@link Controller}'s view hierarchy that {@link com.bluelinelabs.conductor.changehandler.TransitionChangeHandler}s
+ * should not capture. Capturing start and end values for every descendant of large views, such as long lists,
+ * can take longer than the transition itself. Obtained through {@link Controller#getTransitionExclusions()}.
+ */
+public class TransitionExclusions {
+
+    private final List<Integer> mExcludedIds = new ArrayList<>();
+    private final List<Class<? extends View>> mExcludedClasses = new ArrayList<>();
+    private final List<View> mHeavyViews = new ArrayList<>();
+
+    TransitionExclusions() { }
+
+    /**
+     * Excludes the views with the passed ID, along with all of their descendants.
+     */
+    public void excludeId(@IdRes int viewId) {
+        if (!mExcludedIds.contains(viewId)) {
+            mExcludedIds.add(viewId);
+        }
+    }
+
+    /**
+     * Excludes all views of the passed class, along with all of their descendants.
+     */
+    public void excludeClass(@NonNull Class<? extends View> viewClass) {
+        if (!mExcludedClasses.contains(viewClass)) {
+            mExcludedClasses.add(viewClass);
+        }
+    }
+
+    /**
+     * Marks the passed view as heavy. The view itself will still be captured and can be transitioned as a whole,
+     * but none of its descendants will be. Heavy views are forgotten once the Controller's view is destroyed.
+     *
+     * @param view The root of the heavy subtree
+     * @param heavy True to exclude the view's descendants, false to include them again
+     */
+    public void setHeavy(@NonNull View view, boolean heavy) {
+        if (heavy && !mHeavyViews.contains(view)) {
+            mHeavyViews.add(view);
+        } else if (!heavy) {
+            mHeavyViews.remove(view);
+        }
+    }
+
+    public boolean isEmpty() {
+        return mExcludedIds.isEmpty() && mExcludedClasses.isEmpty() && mHeavyViews.isEmpty();
+    }
+
+    /**
+     * Adds these exclusions to the passed {@link Transition}.
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public void applyTo(@NonNull Transition transition) {
+        for (int viewId : mExcludedIds) {
+            transition.excludeTarget(viewId, true);
+            transition.excludeChildren(viewId, true);
+        }
+
+        for (Class<? extends View> viewClass : mExcludedClasses) {
+            transition.excludeTarget(viewClass, true);
+            transition.excludeChildren(viewClass, true);
+        }
+
+        for (View view : mHeavyViews) {
+            transition.excludeChildren(view, true);
+        }
+    }
+
+    void clearViews() {
+        mHeavyViews.clear();
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds on to the released views of {@link Controller}s that opted in with {@link Controller#getViewPoolKey()},
+ * so that they can be handed to the next {@link Controller} with the same key instead of being created again.
+ */
+class ViewPool {
+
+    // Ordered from least to most recently pooled, used to evict across keys
+    private final LinkedHashMap<View, Object> mPooledViews = new LinkedHashMap<>();
+    private final Map<Object, ArrayDeque<View>> mViewsByKey = new HashMap<>();
+    private int mMaxViews;
+    private int mMaxViewsPerKey;
+    private int mHits;
+    private int mMisses;
+
+    ViewPool(int maxViews, int maxViewsPerKey) {
+        mMaxViews = maxViews;
+        mMaxViewsPerKey = maxViewsPerKey;
+    }
+
+    void setLimits(int maxViews, int maxViewsPerKey) {
+        mMaxViews = maxViews;
+        mMaxViewsPerKey = maxViewsPerKey;
+
+        for (ArrayDeque<View> views : mViewsByKey.values()) {
+            while (views.size() > maxViewsPerKey) {
+                mPooledViews.remove(views.pollFirst());
+            }
+        }
+        trim();
+    }
+
+    /**
+     * Adds the passed view to the pool, unless the pool already holds the maximum number of views for its key.
+     */
+    void release(@NonNull Object key, @NonNull View view) {
+        ArrayDeque<View> views = mViewsByKey.get(key);
+        if (views == null) {
+            views = new ArrayDeque<>();
+            mViewsByKey.put(key, views);
+        }
+
+        if (views.size() < mMaxViewsPerKey && !mPooledViews.containsKey(view)) {
+            views.add(view);
+            mPooledViews.put(view, key);
+            trim();
+        }
+    }
+
+    /**
+     * Removes and returns the most recently pooled view for the passed key, or null if there is none. Views are
+     * usually pooled while they're still being removed from their parent, so any view that still has one by now
+     * was kept by something else and is dropped instead.
+     */
+    View acquire(@NonNull Object key) {
+        ArrayDeque<View> views = mViewsByKey.get(key);
+        View view = null;
+
+        if (views != null) {
+            while ((view = views.pollLast()) != null) {
+                mPooledViews.remove(view);
+                if (view.getParent() == null) {
+                    break;
+                }
+            }
+        }
+
+        if (view != null) {
+            mHits++;
+        } else {
+            mMisses++;
+        }
+        return view;
+    }
+
+    void clear() {
+        mPooledViews.clear();
+        mViewsByKey.clear();
+    }
+
+    int size() {
+        return mPooledViews.size();
+    }
+
+    int getHits() {
+        return mHits;
+    }
+
+    int getMisses() {
+        return mMisses;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<View, Object>> iterator = mPooledViews.entrySet().iterator();
+        while (mPooledViews.size() > mMaxViews && iterator.hasNext()) {
+            Map.Entry<View, Object> eldest = iterator.next();
+            iterator.remove();
+            mViewsByKey.get(eldest.getValue()).remove(eldest.getKey());
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Creates {@link Controller} views ahead of time on a shared background thread, so that they are ready by the time
+ * their {@link Controller} is pushed.
+ */
+class ViewPrefetcher {
+
+    private static final String TAG = "ViewPrefetcher";
+
+    private static Handler sHandler;
+
+    private static synchronized Handler getHandler() {
+        if (sHandler == null) {
+            HandlerThread thread = new HandlerThread("Conductor-Prefetch", Process.THREAD_PRIORITY_DEFAULT);
+            thread.start();
+            sHandler = new Handler(thread.getLooper());
+        }
+        return sHandler;
+    }
+
+    /**
+     * Starts creating the passed {@link Controller}'s view in the background.
+     */
+    @NonNull
+    static Request prefetch(@NonNull Controller controller, @NonNull ViewGroup parent) {
+        // LayoutInflater instances are not thread safe, so the background thread gets its own.
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext()).cloneInContext(parent.getContext());
+
+        Request request = new Request(controller, inflater, parent);
+        getHandler().post(request);
+        return request;
+    }
+
+    static class Request implements Runnable {
+
+        private static final int STATE_PENDING = 0;
+        private static final int STATE_RUNNING = 1;
+        private static final int STATE_DONE = 2;
+        private static final int STATE_CANCELLED = 3;
+
+        private final Controller mController;
+        private final LayoutInflater mInflater;
+        private final ViewGroup mParent;
+        private int mState = STATE_PENDING;
+        private boolean mDiscardResult;
+        private View mView;
+
+        Request(@NonNull Controller controller, @NonNull LayoutInflater inflater, @NonNull ViewGroup parent) {
+            mController = controller;
+            mInflater = inflater;
+            mParent = parent;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (mState != STATE_PENDING) {
+                    return;
+                }
+                mState = STATE_RUNNING;
+            }
+
+            View view = null;
+            try {
+                view = mController.onCreateView(mInflater, mParent);
+            } catch (RuntimeException e) {
+                // Views that can't be created off of the main thread are simply created on it once they're needed.
+                Log.w(TAG, "Unable to prefetch view for " + mController.getClass().getName(), e);
+            }
+
+            synchronized (this) {
+                mView = mDiscardResult ? null : view;
+                mState = STATE_DONE;
+            }
+        }
+
+        /**
+         * Returns the prefetched view, or null if the view should be created synchronously instead. Either way,
+         * the request is cancelled. If the view is still being created, this doesn't wait for it, so the main
+         * thread is never blocked by the background thread. That view is discarded once it's finished.
+         */
+        synchronized View take() {
+            View view = mState == STATE_DONE ? mView : null;
+            cancel();
+            return view;
+        }
+
+        /**
+         * Cancels this request. A view that is currently being created will be discarded once it is finished.
+         */
+        synchronized void cancel() {
+            if (mState == STATE_PENDING) {
+                getHandler().removeCallbacks(this);
+                mState = STATE_CANCELLED;
+            } else if (mState == STATE_RUNNING) {
+                mDiscardResult = true;
+            } else {
+                mView = null;
+                mState = STATE_CANCELLED;
+            }
+        }
+    }
+
+}
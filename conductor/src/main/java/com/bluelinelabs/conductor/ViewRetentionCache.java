@@ -0,0 +1,137 @@
+package com.bluelinelabs.conductor;
+
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the views of detached {@link Controller}s around until either the maximum number of views or the
+ * estimated memory budget is exceeded, at which point the views of the Controllers that were shown least recently
+ * are released.
+ */
+class ViewRetentionCache {
+
+    // Rough cost of a View instance and its associated objects, not including any images it displays
+    private static final int VIEW_OVERHEAD_BYTES = 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    // Ordered from least to most recently detached
+    private final LinkedHashMap<Controller, Long> mRetainedControllers = new LinkedHashMap<>();
+    private int mMaxViews;
+    private long mMaxBytes;
+    private long mRetainedBytes;
+    private int mHits;
+    private int mMisses;
+
+    ViewRetentionCache(int maxViews, long maxBytes) {
+        mMaxViews = maxViews;
+        mMaxBytes = maxBytes;
+    }
+
+    void setLimits(int maxViews, long maxBytes) {
+        mMaxViews = maxViews;
+        mMaxBytes = maxBytes;
+        trim();
+    }
+
+    void retain(@NonNull Controller controller, @NonNull View view) {
+        long size = estimateSize(view);
+        Long previousSize = mRetainedControllers.put(controller, size);
+        mRetainedBytes += size - (previousSize != null ? previousSize : 0);
+        trim();
+    }
+
+    /**
+     * Removes the passed Controller from the cache without releasing its view.
+     *
+     * @return True if the Controller's view was being retained by this cache
+     */
+    boolean remove(@NonNull Controller controller) {
+        Long size = mRetainedControllers.remove(controller);
+        if (size != null) {
+            mRetainedBytes -= size;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Releases the views of all retained Controllers.
+     */
+    void releaseAll() {
+        while (!mRetainedControllers.isEmpty()) {
+            releaseEldest();
+        }
+    }
+
+    void recordHit() {
+        mHits++;
+    }
+
+    void recordMiss() {
+        mMisses++;
+    }
+
+    int getHits() {
+        return mHits;
+    }
+
+    int getMisses() {
+        return mMisses;
+    }
+
+    int size() {
+        return mRetainedControllers.size();
+    }
+
+    long getRetainedBytes() {
+        return mRetainedBytes;
+    }
+
+    private void trim() {
+        while (!mRetainedControllers.isEmpty() && (mRetainedControllers.size() > mMaxViews || (mMaxBytes > 0 && mRetainedBytes > mMaxBytes))) {
+            releaseEldest();
+        }
+    }
+
+    private void releaseEldest() {
+        Iterator<Map.Entry<Controller, Long>> iterator = mRetainedControllers.entrySet().iterator();
+        Map.Entry<Controller, Long> eldest = iterator.next();
+        iterator.remove();
+        mRetainedBytes -= eldest.getValue();
+
+        eldest.getKey().releaseRetainedView();
+    }
+
+    static long estimateSize(@NonNull View view) {
+        long size = VIEW_OVERHEAD_BYTES + estimateSize(view.getBackground());
+
+        if (view instanceof ImageView) {
+            size += estimateSize(((ImageView)view).getDrawable());
+        }
+
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup)view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                size += estimateSize(viewGroup.getChildAt(i));
+            }
+        }
+
+        return size;
+    }
+
+    private static long estimateSize(Drawable drawable) {
+        if (drawable == null) {
+            return 0;
+        }
+
+        return (long)Math.max(0, drawable.getIntrinsicWidth()) * Math.max(0, drawable.getIntrinsicHeight()) * BYTES_PER_PIXEL;
+    }
+
+}
@@ -2,26 +2,44 @@ package com.bluelinelabs.conductor.changehandler;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.animation.ValueAnimator.AnimatorUpdateListener;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.view.View;
+import android.view.View.MeasureSpec;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
 
 import com.bluelinelabs.conductor.ControllerChangeHandler;
+import com.bluelinelabs.conductor.ProgressiveChangeHandler;
 
 /**
- * A base {@link ControllerChangeHandler} that facilitates using {@link android.animation.Animator}s to replace Controller Views
+ * A base {@link ControllerChangeHandler} that facilitates using {@link android.animation.Animator}s to replace Controller Views.
+ * Changes can also be driven interactively as a {@link ProgressiveChangeHandler}, as long as the Animator is a
+ * {@link ValueAnimator}, such as the one from {@link #obtainReusableAnimator()}. Other Animators, such as
+ * AnimatorSets or circular reveals, can't be scrubbed, so interactive changes aren't started for them.
  */
-public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
+public abstract class AnimatorChangeHandler extends ControllerChangeHandler implements ProgressiveChangeHandler {
 
     private static final String KEY_DURATION = "AnimatorChangeHandler.duration";
     private static final String KEY_REMOVES_FROM_ON_PUSH = "AnimatorChangeHandler.removesFromViewOnPush";
+    private static final String KEY_USES_HARDWARE_LAYERS = "AnimatorChangeHandler.usesHardwareLayers";
+    private static final String KEY_MEASURES_SYNCHRONOUSLY = "AnimatorChangeHandler.measuresSynchronously";
+    private static final String KEY_SNAPSHOTS_FROM_VIEW = "AnimatorChangeHandler.snapshotsFromView";
 
     public static final long DEFAULT_ANIMATION_DURATION = -1;
 
     private long mAnimationDuration;
     private boolean mRemovesFromViewOnPush;
+    private boolean mUsesHardwareLayers;
+    private boolean mMeasuresSynchronously;
+    private boolean mSnapshotsFromView;
+    private Animator mAnimator;
+    private boolean mCompleteImmediately;
+    private ReusableAnimator mReusableAnimator;
+    private ChangeAnimatorListener mReusableAnimatorListener;
+    private ProgressiveChange mProgressiveChange;
 
     public AnimatorChangeHandler() {
         this(DEFAULT_ANIMATION_DURATION, true);
@@ -45,6 +63,9 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
         super.saveToBundle(bundle);
         bundle.putLong(KEY_DURATION, mAnimationDuration);
         bundle.putBoolean(KEY_REMOVES_FROM_ON_PUSH, mRemovesFromViewOnPush);
+        bundle.putBoolean(KEY_USES_HARDWARE_LAYERS, mUsesHardwareLayers);
+        bundle.putBoolean(KEY_MEASURES_SYNCHRONOUSLY, mMeasuresSynchronously);
+        bundle.putBoolean(KEY_SNAPSHOTS_FROM_VIEW, mSnapshotsFromView);
     }
 
     @Override
@@ -52,6 +73,9 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
         super.restoreFromBundle(bundle);
         mAnimationDuration = bundle.getLong(KEY_DURATION);
         mRemovesFromViewOnPush = bundle.getBoolean(KEY_REMOVES_FROM_ON_PUSH);
+        mUsesHardwareLayers = bundle.getBoolean(KEY_USES_HARDWARE_LAYERS);
+        mMeasuresSynchronously = bundle.getBoolean(KEY_MEASURES_SYNCHRONOUSLY);
+        mSnapshotsFromView = bundle.getBoolean(KEY_SNAPSHOTS_FROM_VIEW);
     }
 
     public long getAnimationDuration() {
@@ -62,6 +86,59 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
         return mRemovesFromViewOnPush;
     }
 
+    /**
+     * Sets whether the "from" and "to" Views should be put on hardware layers while they're being animated.
+     * Layers are built before the first frame, so large hierarchies don't have to be redrawn on every frame of
+     * animations that only change properties like alpha, translation or scale. Each View's previous layer type is
+     * restored once the animation ends or is cancelled. Should not be used if the Views' contents change during
+     * the animation, as every change forces the layer to be redrawn.
+     *
+     * @param usesHardwareLayers True to animate on hardware layers
+     */
+    public void setUsesHardwareLayers(boolean usesHardwareLayers) {
+        mUsesHardwareLayers = usesHardwareLayers;
+        invalidateSavedState();
+    }
+
+    public boolean usesHardwareLayers() {
+        return mUsesHardwareLayers;
+    }
+
+    /**
+     * Sets whether a newly added "to" View should be measured and laid out against its container right away, so
+     * that the animation can start in the same frame as the change instead of waiting for the next layout pass.
+     * If the container hasn't been laid out yet or the View still has no size afterwards, such as when its size
+     * depends on a later layout, the animation waits for the next pre-draw pass as usual.
+     *
+     * @param measuresSynchronously True to measure and lay out the "to" View before the animation starts
+     */
+    public void setMeasuresSynchronously(boolean measuresSynchronously) {
+        mMeasuresSynchronously = measuresSynchronously;
+        invalidateSavedState();
+    }
+
+    public boolean measuresSynchronously() {
+        return mMeasuresSynchronously;
+    }
+
+    /**
+     * Sets whether the "from" View should be replaced by a snapshot for the duration of the animation. The View is
+     * drawn once into a pooled Bitmap and removed from the container right away, so its Controller is detached and
+     * can release its View immediately, and only a single image has to be drawn on each frame. Only used when the
+     * "from" View would be removed at the end of the change anyway. Should not be used when the "from" View's
+     * contents are expected to keep changing while it animates out.
+     *
+     * @param snapshotsFromView True to animate a snapshot of the "from" View instead of the View itself
+     */
+    public void setSnapshotsFromView(boolean snapshotsFromView) {
+        mSnapshotsFromView = snapshotsFromView;
+        invalidateSavedState();
+    }
+
+    public boolean snapshotsFromView() {
+        return mSnapshotsFromView;
+    }
+
     /**
      * Should be overridden to return the Animator to use while replacing Views.
      *
@@ -73,16 +150,129 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
      */
     protected abstract Animator getAnimator(@NonNull ViewGroup container, View from, View to, boolean isPush, boolean toAddedToContainer);
 
+    /**
+     * Returns a {@link ReusableAnimator}, cleared and ready to be set up for a new change. Handlers that set it up in
+     * {@link #getAnimator(ViewGroup, View, View, boolean, boolean)} and return its Animator reuse pooled Animators
+     * instead of allocating new ones, even across handler instances. It's returned to the pool once the change is
+     * over. If this handler's previous change is still running, it's ended first.
+     */
+    @NonNull
+    protected final ReusableAnimator obtainReusableAnimator() {
+        if (mReusableAnimator == null) {
+            mReusableAnimator = ReusableAnimator.obtain();
+        }
+        mReusableAnimator.reset();
+        return mReusableAnimator;
+    }
+
+    private void releaseReusableAnimator() {
+        if (mReusableAnimator != null) {
+            if (mReusableAnimatorListener != null) {
+                mReusableAnimator.getAnimator().removeListener(mReusableAnimatorListener);
+            }
+            mReusableAnimator.release();
+            mReusableAnimator = null;
+        }
+    }
+
     /**
      * Will be called after the animation is complete to reset the View that was removed to its pre-animation state.
      */
     protected abstract void resetFromView(@NonNull View from);
 
     @Override
-    public final void performChange(@NonNull final ViewGroup container, final View from, final View to, final boolean isPush, @NonNull final ControllerChangeCompletedListener changeListener) {
+    public boolean startProgress(@NonNull ViewGroup container, View from, View to, boolean isPush, @NonNull ProgressListener progressListener) {
+        if (mProgressiveChange != null) {
+            throw new IllegalStateException("This change handler is already running an interactive change.");
+        }
+
+        boolean addingToView = to != null && to.getParent() == null;
+        if (addingToView) {
+            if (isPush || from == null) {
+                container.addView(to);
+            } else {
+                container.addView(to, container.indexOfChild(from));
+            }
+
+            // Most animations depend on the View's size, and there's no waiting for the next layout pass here
+            if (to.getWidth() <= 0 && to.getHeight() <= 0) {
+                measureAndLayout(container, to);
+            }
+        }
+
+        Animator animator = getAnimator(container, from, to, isPush, addingToView);
+        if (!(animator instanceof ValueAnimator)) {
+            releaseReusableAnimator();
+            if (addingToView) {
+                container.removeView(to);
+                resetFromView(to);
+            }
+            return false;
+        }
+
+        if (mAnimationDuration > 0) {
+            animator.setDuration(mAnimationDuration);
+        }
+
+        mProgressiveChange = new ProgressiveChange(container, from, to, addingToView, (ValueAnimator)animator, progressListener);
+        mProgressiveChange.setProgress(0);
+        return true;
+    }
+
+    @Override
+    public void setProgress(float progress) {
+        if (mProgressiveChange != null && !mProgressiveChange.mCommitted && !mProgressiveChange.mCancelled) {
+            mProgressiveChange.setProgress(Math.max(0, Math.min(1, progress)));
+        }
+    }
+
+    @Override
+    public void commit() {
+        if (mProgressiveChange != null && !mProgressiveChange.mCommitted && !mProgressiveChange.mCancelled) {
+            mProgressiveChange.mCommitted = true;
+            mProgressiveChange.mProgressListener.onProgressCommitted(this);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        if (mProgressiveChange != null && !mProgressiveChange.mCommitted && !mProgressiveChange.mCancelled) {
+            mProgressiveChange.cancel();
+        }
+    }
+
+    /**
+     * Ends the running animation early, jumping straight to its final state.
+     */
+    @Override
+    public void completeImmediately() {
+        if (mProgressiveChange != null && mProgressiveChange.mSettleAnimator != null) {
+            mProgressiveChange.mSettleAnimator.end();
+        } else if (mAnimator != null) {
+            mAnimator.end();
+        } else {
+            // The animation is waiting for the "to" View to be laid out, so it will end as soon as it starts
+            mCompleteImmediately = true;
+        }
+    }
+
+    @Override
+    public final void performChange(@NonNull final ViewGroup container, View from, final View to, final boolean isPush, @NonNull final ControllerChangeCompletedListener changeListener) {
+        if (mProgressiveChange != null && mProgressiveChange.mCommitted && mProgressiveChange.mFrom == from && mProgressiveChange.mTo == to) {
+            ProgressiveChange progressiveChange = mProgressiveChange;
+            mProgressiveChange = null;
+            startAnimation(progressiveChange.mAnimator, container, from, to, isPush, changeListener, progressiveChange.mPlayTime);
+            return;
+        }
+
         boolean readyToAnimate = true;
         final boolean addingToView = to != null && to.getParent() == null;
 
+        if (mSnapshotsFromView && from != null && (!isPush || mRemovesFromViewOnPush)) {
+            from = SnapshotView.replace(container, from);
+        }
+        final View animatedFrom = from;
+
         if (addingToView) {
             if (isPush || from == null) {
                 container.addView(to);
@@ -90,6 +280,10 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
                 container.addView(to, container.indexOfChild(from));
             }
 
+            if (mMeasuresSynchronously && to.getWidth() <= 0 && to.getHeight() <= 0) {
+                measureAndLayout(container, to);
+            }
+
             if (to.getWidth() <= 0 && to.getHeight() <= 0) {
                 readyToAnimate = false;
                 to.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
@@ -99,7 +293,7 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
                         if (observer.isAlive()) {
                             observer.removeOnPreDrawListener(this);
                         }
-                        performAnimation(container, from, to, isPush, addingToView, changeListener);
+                        performAnimation(container, animatedFrom, to, isPush, addingToView, changeListener);
                         return true;
                     }
                 });
@@ -107,37 +301,278 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
         }
 
         if (readyToAnimate) {
-            performAnimation(container, from, to, isPush, addingToView, changeListener);
+            performAnimation(container, animatedFrom, to, isPush, addingToView, changeListener);
         }
     }
 
-    private void performAnimation(@NonNull final ViewGroup container, final View from, View to, final boolean isPush, final boolean toAddedToContainer, @NonNull final ControllerChangeCompletedListener changeListener) {
+    private void performAnimation(@NonNull ViewGroup container, View from, View to, boolean isPush, boolean toAddedToContainer, @NonNull ControllerChangeCompletedListener changeListener) {
         Animator animator = getAnimator(container, from, to, isPush, toAddedToContainer);
 
         if (mAnimationDuration > 0) {
             animator.setDuration(mAnimationDuration);
         }
 
-        animator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationCancel(Animator animation) {
-                changeListener.onChangeCompleted();
+        startAnimation(animator, container, from, to, isPush, changeListener, 0);
+    }
+
+    private void startAnimation(@NonNull Animator animator, @NonNull ViewGroup container, View from, View to, boolean isPush, @NonNull ControllerChangeCompletedListener changeListener, long playTime) {
+        ChangeAnimatorListener listener;
+        if (mReusableAnimator != null && animator == mReusableAnimator.getAnimator()) {
+            // The reusable Animator keeps this handler's listener until it's released
+            if (mReusableAnimatorListener == null) {
+                mReusableAnimatorListener = new ChangeAnimatorListener();
             }
+            if (!animator.getListeners().contains(mReusableAnimatorListener)) {
+                animator.addListener(mReusableAnimatorListener);
+            }
+            listener = mReusableAnimatorListener;
+        } else {
+            releaseReusableAnimator();
+            listener = new ChangeAnimatorListener();
+            animator.addListener(listener);
+        }
+        listener.setChange(container, from, to, isPush, changeListener);
 
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                if (from != null && (!isPush || mRemovesFromViewOnPush)) {
-                    container.removeView(from);
+        mAnimator = animator;
+        animator.start();
+
+        if (playTime > 0) {
+            // Continues an interactive change from where it was left
+            ((ValueAnimator)animator).setCurrentPlayTime(playTime);
+        }
+
+        if (mCompleteImmediately) {
+            mCompleteImmediately = false;
+            animator.end();
+        }
+    }
+
+    /**
+     * Measures and lays out the passed child within its container's current bounds, the same way a FrameLayout
+     * would with the default gravity. Any difference will be corrected by the next regular layout pass.
+     */
+    private static void measureAndLayout(@NonNull ViewGroup container, @NonNull View child) {
+        int containerWidth = container.getWidth();
+        int containerHeight = container.getHeight();
+        if (containerWidth <= 0 || containerHeight <= 0) {
+            return;
+        }
+
+        ViewGroup.LayoutParams layoutParams = child.getLayoutParams();
+        int left = container.getPaddingLeft();
+        int top = container.getPaddingTop();
+        int horizontalPadding = left + container.getPaddingRight();
+        int verticalPadding = top + container.getPaddingBottom();
+
+        if (layoutParams instanceof ViewGroup.MarginLayoutParams) {
+            ViewGroup.MarginLayoutParams marginLayoutParams = (ViewGroup.MarginLayoutParams)layoutParams;
+            left += marginLayoutParams.leftMargin;
+            top += marginLayoutParams.topMargin;
+            horizontalPadding += marginLayoutParams.leftMargin + marginLayoutParams.rightMargin;
+            verticalPadding += marginLayoutParams.topMargin + marginLayoutParams.bottomMargin;
+        }
+
+        int width = layoutParams != null ? layoutParams.width : ViewGroup.LayoutParams.MATCH_PARENT;
+        int height = layoutParams != null ? layoutParams.height : ViewGroup.LayoutParams.MATCH_PARENT;
+
+        child.measure(
+                ViewGroup.getChildMeasureSpec(MeasureSpec.makeMeasureSpec(containerWidth, MeasureSpec.EXACTLY), horizontalPadding, width),
+                ViewGroup.getChildMeasureSpec(MeasureSpec.makeMeasureSpec(containerHeight, MeasureSpec.EXACTLY), verticalPadding, height));
+        child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+    }
+
+    /**
+     * Completes the change once its animation is over, and handles putting the animated Views on hardware layers.
+     * Holds the state of a single change at a time, so that it can be reused along with a {@link ReusableAnimator}.
+     */
+    private class ChangeAnimatorListener extends AnimatorListenerAdapter {
+
+        private ViewGroup mContainer;
+        private View mFrom;
+        private View mTo;
+        private boolean mIsPush;
+        private ControllerChangeCompletedListener mChangeListener;
+        private int mFromLayerType;
+        private int mToLayerType;
+        private boolean mUsesLayers;
+
+        void setChange(@NonNull ViewGroup container, View from, View to, boolean isPush, @NonNull ControllerChangeCompletedListener changeListener) {
+            mContainer = container;
+            mFrom = from;
+            mTo = to;
+            mIsPush = isPush;
+            mChangeListener = changeListener;
+            mUsesLayers = mUsesHardwareLayers;
+
+            if (mUsesLayers) {
+                mFromLayerType = applyHardwareLayer(from);
+                mToLayerType = applyHardwareLayer(to);
+            }
+        }
+
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            mAnimator = null;
+            restoreLayerTypes();
+
+            if (mChangeListener != null) {
+                mChangeListener.onChangeCompleted();
+            }
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            mAnimator = null;
+            restoreLayerTypes();
+
+            // Cleared first, as completing the change may start the next one with this same listener
+            ViewGroup container = mContainer;
+            View from = mFrom;
+            boolean isPush = mIsPush;
+            ControllerChangeCompletedListener changeListener = mChangeListener;
+            mContainer = null;
+            mFrom = null;
+            mTo = null;
+            mChangeListener = null;
+
+            // Released before completing the change, so that the next change can already use the pool
+            if (mReusableAnimator != null && animation == mReusableAnimator.getAnimator()) {
+                releaseReusableAnimator();
+            }
+
+            if (changeListener == null) {
+                return;
+            }
+
+            if (from != null && (!isPush || mRemovesFromViewOnPush)) {
+                container.removeView(from);
+
+                if (from instanceof SnapshotView) {
+                    ((SnapshotView)from).releaseSnapshot();
                 }
+            }
+
+            changeListener.onChangeCompleted();
+
+            if (isPush && from != null) {
+                resetFromView(from);
+            }
+        }
 
-                changeListener.onChangeCompleted();
+        private void restoreLayerTypes() {
+            if (mUsesLayers) {
+                mUsesLayers = false;
 
-                if (isPush && from != null) {
-                    resetFromView(from);
+                if (mFrom != null) {
+                    mFrom.setLayerType(mFromLayerType, null);
+                }
+                if (mTo != null) {
+                    mTo.setLayerType(mToLayerType, null);
                 }
             }
-        });
-        animator.start();
+        }
+    }
+
+    /**
+     * The state of an interactive change, from the time it's started until it's either performed after being
+     * committed, or has settled back to its start after being cancelled.
+     */
+    private class ProgressiveChange extends AnimatorListenerAdapter implements AnimatorUpdateListener {
+
+        final ViewGroup mContainer;
+        final View mFrom;
+        final View mTo;
+        final boolean mToAddedToContainer;
+        final ValueAnimator mAnimator;
+        final ProgressListener mProgressListener;
+        long mPlayTime;
+        boolean mCommitted;
+        boolean mCancelled;
+        ValueAnimator mSettleAnimator;
+        long mSettleStartPlayTime;
+
+        ProgressiveChange(@NonNull ViewGroup container, View from, View to, boolean toAddedToContainer, @NonNull ValueAnimator animator, @NonNull ProgressListener progressListener) {
+            mContainer = container;
+            mFrom = from;
+            mTo = to;
+            mToAddedToContainer = toAddedToContainer;
+            mAnimator = animator;
+            mProgressListener = progressListener;
+        }
+
+        void setProgress(float progress) {
+            // Before API 24, seeking to the very end ends the Animator, which would finish the change before it's committed
+            long duration = mAnimator.getDuration();
+            mPlayTime = Math.max(0, Math.min((long)(progress * duration), duration - 1));
+            mAnimator.setCurrentPlayTime(mPlayTime);
+        }
+
+        void cancel() {
+            mCancelled = true;
+
+            if (mPlayTime <= 0) {
+                finishCancel();
+                return;
+            }
+
+            // Animates back at the same pace the change would have run at
+            mSettleStartPlayTime = mPlayTime;
+            mSettleAnimator = ValueAnimator.ofFloat(0, 1);
+            mSettleAnimator.setDuration(mPlayTime);
+            mSettleAnimator.addUpdateListener(this);
+            mSettleAnimator.addListener(this);
+            mSettleAnimator.start();
+        }
+
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            mPlayTime = (long)(mSettleStartPlayTime * (1 - animation.getAnimatedFraction()));
+            mAnimator.setCurrentPlayTime(mPlayTime);
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            finishCancel();
+        }
+
+        private void finishCancel() {
+            if (mProgressiveChange != this) {
+                return;
+            }
+            mProgressiveChange = null;
+
+            mAnimator.setCurrentPlayTime(0);
+
+            if (mToAddedToContainer && mTo != null) {
+                mContainer.removeView(mTo);
+                resetFromView(mTo);
+            }
+
+            if (mReusableAnimator != null && mAnimator == mReusableAnimator.getAnimator()) {
+                releaseReusableAnimator();
+            }
+
+            mProgressListener.onProgressCancelled(AnimatorChangeHandler.this);
+        }
+    }
+
+    /**
+     * Puts the passed View on a hardware layer and builds it, returning its previous layer type.
+     */
+    private static int applyHardwareLayer(View view) {
+        if (view == null) {
+            return View.LAYER_TYPE_NONE;
+        }
+
+        int previousLayerType = view.getLayerType();
+        view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+
+        // Layers can only be built for attached Views
+        if (view.getWindowToken() != null) {
+            view.buildLayer();
+        }
+
+        return previousLayerType;
     }
 
 }
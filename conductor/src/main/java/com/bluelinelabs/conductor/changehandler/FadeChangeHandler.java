@@ -1,8 +1,6 @@
 package com.bluelinelabs.conductor.changehandler;
 
 import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.support.annotation.NonNull;
 import android.view.View;
 import android.view.ViewGroup;
@@ -28,16 +26,16 @@ public class FadeChangeHandler extends AnimatorChangeHandler {
 
     @Override
     protected Animator getAnimator(@NonNull ViewGroup container, View from, View to, boolean isPush, boolean toAddedToContainer) {
-        AnimatorSet animator = new AnimatorSet();
+        ReusableAnimator animator = obtainReusableAnimator();
         if (to != null && toAddedToContainer) {
-            animator.play(ObjectAnimator.ofFloat(to, View.ALPHA, 0, 1));
+            animator.animate(to, ReusableAnimator.ALPHA, 0, 1);
         }
 
         if (from != null) {
-            animator.play(ObjectAnimator.ofFloat(from, View.ALPHA, 0));
+            animator.animateTo(from, ReusableAnimator.ALPHA, 0);
         }
 
-        return animator;
+        return animator.getAnimator();
     }
 
     @Override
@@ -1,8 +1,6 @@
 package com.bluelinelabs.conductor.changehandler;
 
 import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.support.annotation.NonNull;
 import android.view.View;
 import android.view.ViewGroup;
@@ -28,29 +26,29 @@ public class HorizontalChangeHandler extends AnimatorChangeHandler {
 
     @Override
     protected Animator getAnimator(@NonNull ViewGroup container, View from, View to, boolean isPush, boolean toAddedToContainer) {
-        AnimatorSet animatorSet = new AnimatorSet();
+        ReusableAnimator animator = obtainReusableAnimator();
 
         if (isPush) {
             if (from != null) {
-                animatorSet.play(ObjectAnimator.ofFloat(from, View.TRANSLATION_X, -from.getWidth()));
+                animator.animateTo(from, ReusableAnimator.TRANSLATION_X, -from.getWidth());
             }
             if (to != null) {
-                animatorSet.play(ObjectAnimator.ofFloat(to, View.TRANSLATION_X, to.getWidth(), 0));
+                animator.animate(to, ReusableAnimator.TRANSLATION_X, to.getWidth(), 0);
             }
         } else {
             if (from != null) {
-                animatorSet.play(ObjectAnimator.ofFloat(from, View.TRANSLATION_X, from.getWidth()));
+                animator.animateTo(from, ReusableAnimator.TRANSLATION_X, from.getWidth());
             }
             if (to != null) {
-                animatorSet.play(ObjectAnimator.ofFloat(to, View.TRANSLATION_X, -to.getWidth(), 0));
+                animator.animate(to, ReusableAnimator.TRANSLATION_X, -to.getWidth(), 0);
             }
         }
 
-        return animatorSet;
+        return animator.getAnimator();
     }
 
     @Override
     protected void resetFromView(@NonNull View from) {
-        from.setTranslationY(0);
+        from.setTranslationX(0);
     }
 }
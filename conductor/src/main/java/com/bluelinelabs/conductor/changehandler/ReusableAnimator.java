@@ -0,0 +1,251 @@
+package com.bluelinelabs.conductor.changehandler;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.TimeInterpolator;
+import android.animation.ValueAnimator;
+import android.animation.ValueAnimator.AnimatorUpdateListener;
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.LinearInterpolator;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * A single {@link Animator} that can be retargeted at new Views for every change, so that {@link AnimatorChangeHandler}s
+ * don't have to build new AnimatorSets and ObjectAnimators each time. Each animated View property is a track that
+ * runs over all or part of the Animator's duration. Obtained through {@link AnimatorChangeHandler#obtainReusableAnimator()}.
+ * Released ReusableAnimators are pooled and shared by all handlers, since transactions usually create new handlers.
+ */
+public class ReusableAnimator {
+
+    public static final int TRANSLATION_X = 0;
+    public static final int TRANSLATION_Y = 1;
+    public static final int ALPHA = 2;
+    public static final int SCALE_X = 3;
+    public static final int SCALE_Y = 4;
+    public static final int ROTATION_X = 5;
+    public static final int ROTATION_Y = 6;
+
+    private static final int MAX_TRACKS = 4;
+    private static final long DEFAULT_DURATION = 300;
+    private static final int MAX_POOLED_ANIMATORS = 3;
+    private static final TimeInterpolator DEFAULT_INTERPOLATOR = new AccelerateDecelerateInterpolator();
+
+    private static final ArrayDeque<ReusableAnimator> sPool = new ArrayDeque<>();
+
+    private final ValueAnimator mAnimator;
+    private final View[] mViews = new View[MAX_TRACKS];
+    private final int[] mProperties = new int[MAX_TRACKS];
+    private final float[] mStartValues = new float[MAX_TRACKS];
+    private final float[] mEndValues = new float[MAX_TRACKS];
+    private final float[] mStartFractions = new float[MAX_TRACKS];
+    private final float[] mEndFractions = new float[MAX_TRACKS];
+    private int mTrackCount;
+    private TimeInterpolator mInterpolator = DEFAULT_INTERPOLATOR;
+
+    ReusableAnimator() {
+        // Tracks apply the interpolator themselves, as each one may only run for part of the duration
+        mAnimator = ValueAnimator.ofFloat(0, 1);
+        mAnimator.setInterpolator(new LinearInterpolator());
+        mAnimator.setDuration(DEFAULT_DURATION);
+
+        mAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                clearTracks();
+            }
+        });
+
+        mAnimator.addUpdateListener(new AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                float fraction = animation.getAnimatedFraction();
+                for (int i = 0; i < mTrackCount; i++) {
+                    float trackFraction = (fraction - mStartFractions[i]) / (mEndFractions[i] - mStartFractions[i]);
+                    trackFraction = mInterpolator.getInterpolation(Math.max(0, Math.min(1, trackFraction)));
+                    setValue(mViews[i], mProperties[i], mStartValues[i] + (mEndValues[i] - mStartValues[i]) * trackFraction);
+                }
+            }
+        });
+    }
+
+    /**
+     * Animates the passed property of the passed View from its current value to the passed value.
+     */
+    @NonNull
+    public ReusableAnimator animateTo(@NonNull View view, int property, float endValue) {
+        addTrack(view, property, getValue(view, property), endValue, 0, 1);
+        return this;
+    }
+
+    /**
+     * Animates the passed property of the passed View between the passed values.
+     */
+    @NonNull
+    public ReusableAnimator animate(@NonNull View view, int property, float startValue, float endValue) {
+        addTrack(view, property, startValue, endValue, 0, 1);
+        return this;
+    }
+
+    /**
+     * Animates the passed property of the passed View between the passed values during part of the duration.
+     *
+     * @param startFraction The fraction of the duration at which this property starts changing, from 0 to 1
+     * @param endFraction The fraction of the duration at which this property reaches its end value, from 0 to 1
+     */
+    @NonNull
+    public ReusableAnimator animate(@NonNull View view, int property, float startValue, float endValue, float startFraction, float endFraction) {
+        if (startFraction < 0 || endFraction > 1 || startFraction >= endFraction) {
+            throw new IllegalArgumentException("Invalid fractions: " + startFraction + " to " + endFraction);
+        }
+        addTrack(view, property, startValue, endValue, startFraction, endFraction);
+        return this;
+    }
+
+    /**
+     * Sets the interpolator applied to each track. Defaults to an {@link AccelerateDecelerateInterpolator}, as with
+     * ObjectAnimators. Like the duration, it's reset for every change. This should be used rather than setting an
+     * interpolator on the Animator itself.
+     */
+    public void setInterpolator(@NonNull TimeInterpolator interpolator) {
+        mInterpolator = interpolator;
+    }
+
+    /**
+     * Returns the Animator that runs all tracks. It's the same instance for every change this ReusableAnimator is
+     * used for.
+     */
+    @NonNull
+    public Animator getAnimator() {
+        return mAnimator;
+    }
+
+    /**
+     * Removes every pooled ReusableAnimator, such as when the system is running low on memory.
+     */
+    public static void clearPool() {
+        sPool.clear();
+    }
+
+    /**
+     * Returns a pooled ReusableAnimator, or a new one if none is available.
+     */
+    @NonNull
+    static ReusableAnimator obtain() {
+        Iterator<ReusableAnimator> iterator = sPool.iterator();
+        while (iterator.hasNext()) {
+            ReusableAnimator reusableAnimator = iterator.next();
+
+            // Before API 24, Animators only count as stopped once all of their end listeners have been called, and
+            // starting them again from one of those listeners leaves them unable to ever report their end.
+            if (!reusableAnimator.mAnimator.isStarted()) {
+                iterator.remove();
+                return reusableAnimator;
+            }
+        }
+        return new ReusableAnimator();
+    }
+
+    /**
+     * Returns this ReusableAnimator to the pool once its change is over. It must not be used afterwards.
+     */
+    void release() {
+        clear();
+
+        if (sPool.size() < MAX_POOLED_ANIMATORS && !sPool.contains(this)) {
+            sPool.push(this);
+        }
+    }
+
+    /**
+     * Ends the previous change's animation if it's still running and removes all of its tracks.
+     */
+    void reset() {
+        if (mAnimator.isStarted()) {
+            mAnimator.end();
+        }
+        clear();
+    }
+
+    private void clear() {
+        clearTracks();
+        mInterpolator = DEFAULT_INTERPOLATOR;
+        mAnimator.setDuration(DEFAULT_DURATION);
+    }
+
+    private void addTrack(@NonNull View view, int property, float startValue, float endValue, float startFraction, float endFraction) {
+        if (property < TRANSLATION_X || property > ROTATION_Y) {
+            throw new IllegalArgumentException("Unknown property: " + property);
+        } else if (mTrackCount == MAX_TRACKS) {
+            throw new IllegalStateException("ReusableAnimator can only animate " + MAX_TRACKS + " properties at once.");
+        }
+
+        int track = mTrackCount++;
+        mViews[track] = view;
+        mProperties[track] = property;
+        mStartValues[track] = startValue;
+        mEndValues[track] = endValue;
+        mStartFractions[track] = startFraction;
+        mEndFractions[track] = endFraction;
+    }
+
+    private void clearTracks() {
+        for (int i = 0; i < mTrackCount; i++) {
+            mViews[i] = null;
+        }
+        mTrackCount = 0;
+    }
+
+    private static float getValue(@NonNull View view, int property) {
+        switch (property) {
+            case TRANSLATION_X:
+                return view.getTranslationX();
+            case TRANSLATION_Y:
+                return view.getTranslationY();
+            case ALPHA:
+                return view.getAlpha();
+            case SCALE_X:
+                return view.getScaleX();
+            case SCALE_Y:
+                return view.getScaleY();
+            case ROTATION_X:
+                return view.getRotationX();
+            case ROTATION_Y:
+                return view.getRotationY();
+            default:
+                throw new IllegalArgumentException("Unknown property: " + property);
+        }
+    }
+
+    private static void setValue(@NonNull View view, int property, float value) {
+        switch (property) {
+            case TRANSLATION_X:
+                view.setTranslationX(value);
+                break;
+            case TRANSLATION_Y:
+                view.setTranslationY(value);
+                break;
+            case ALPHA:
+                view.setAlpha(value);
+                break;
+            case SCALE_X:
+                view.setScaleX(value);
+                break;
+            case SCALE_Y:
+                view.setScaleY(value);
+                break;
+            case ROTATION_X:
+                view.setRotationX(value);
+                break;
+            case ROTATION_Y:
+                view.setRotationY(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown property: " + property);
+        }
+    }
+
+}
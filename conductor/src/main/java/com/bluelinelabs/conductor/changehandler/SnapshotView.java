@@ -0,0 +1,67 @@
+package com.bluelinelabs.conductor.changehandler;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.bluelinelabs.conductor.internal.BitmapPool;
+
+/**
+ * An ImageView showing a snapshot of another View, used in place of that View while it animates out.
+ */
+class SnapshotView extends ImageView {
+
+    private Bitmap mSnapshot;
+
+    private SnapshotView(Context context) {
+        super(context);
+    }
+
+    /**
+     * Replaces the passed View in its container with a snapshot of it, in the same position. Returns the passed View
+     * itself if it can't be drawn yet.
+     */
+    @NonNull
+    static View replace(@NonNull ViewGroup container, @NonNull View view) {
+        int width = view.getWidth();
+        int height = view.getHeight();
+        if (width <= 0 || height <= 0 || view.getParent() != container) {
+            return view;
+        }
+
+        Bitmap snapshot = BitmapPool.obtain(width, height);
+        view.draw(new Canvas(snapshot));
+
+        SnapshotView snapshotView = new SnapshotView(view.getContext());
+        snapshotView.mSnapshot = snapshot;
+        snapshotView.setImageBitmap(snapshot);
+        snapshotView.setScaleType(ScaleType.MATRIX);
+
+        // The snapshot takes over the View's LayoutParams, which already suit this container, so later layout passes
+        // keep it exactly where the View was. It's still laid out right away since animators read its size as they're built.
+        container.addView(snapshotView, container.indexOfChild(view), view.getLayoutParams());
+        snapshotView.layout(view.getLeft(), view.getTop(), view.getRight(), view.getBottom());
+        snapshotView.setTranslationX(view.getTranslationX());
+        snapshotView.setTranslationY(view.getTranslationY());
+        snapshotView.setAlpha(view.getAlpha());
+
+        container.removeView(view);
+        return snapshotView;
+    }
+
+    /**
+     * Returns this View's snapshot to the pool. Should only be called once this View has been removed.
+     */
+    void releaseSnapshot() {
+        if (mSnapshot != null) {
+            setImageDrawable(null);
+            BitmapPool.release(mSnapshot);
+            mSnapshot = null;
+        }
+    }
+
+}
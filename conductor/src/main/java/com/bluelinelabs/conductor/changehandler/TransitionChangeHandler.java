@@ -2,14 +2,19 @@ package com.bluelinelabs.conductor.changehandler;
 
 import android.annotation.TargetApi;
 import android.os.Build;
+import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.transition.Transition;
 import android.transition.Transition.TransitionListener;
 import android.transition.TransitionManager;
+import android.transition.TransitionSet;
+import android.transition.TransitionValues;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.bluelinelabs.conductor.Controller;
 import com.bluelinelabs.conductor.ControllerChangeHandler;
+import com.bluelinelabs.conductor.TransitionExclusions;
 
 /**
  * A base {@link ControllerChangeHandler} that facilitates using {@link android.transition.Transition}s to replace Controller Views.
@@ -17,6 +22,11 @@ import com.bluelinelabs.conductor.ControllerChangeHandler;
 @TargetApi(Build.VERSION_CODES.LOLLIPOP)
 public abstract class TransitionChangeHandler extends ControllerChangeHandler {
 
+    private static final String KEY_SCOPED_TO_ROOT_VIEWS = "TransitionChangeHandler.scopedToRootViews";
+
+    private boolean mScopedToRootViews;
+    private final int[] mCapturedViewCount = new int[1];
+
     /**
      * Should be overridden to return the Transition to use while replacing Views.
      *
@@ -28,6 +38,42 @@ public abstract class TransitionChangeHandler extends ControllerChangeHandler {
     @NonNull
     protected abstract Transition getTransition(@NonNull ViewGroup container, View from, View to, boolean isPush);
 
+    @Override
+    public void saveToBundle(@NonNull Bundle bundle) {
+        super.saveToBundle(bundle);
+        bundle.putBoolean(KEY_SCOPED_TO_ROOT_VIEWS, mScopedToRootViews);
+    }
+
+    @Override
+    public void restoreFromBundle(@NonNull Bundle bundle) {
+        super.restoreFromBundle(bundle);
+        mScopedToRootViews = bundle.getBoolean(KEY_SCOPED_TO_ROOT_VIEWS);
+    }
+
+    /**
+     * Sets whether only the "from" and "to" root Views should be captured, rather than every View in the container.
+     * This is ignored for Transitions that already specify their own targets. Transitions that move individual
+     * Views within either hierarchy should not be scoped.
+     *
+     * @param scopedToRootViews True to only capture the root Views of the Controllers being changed
+     */
+    public void setScopedToRootViews(boolean scopedToRootViews) {
+        mScopedToRootViews = scopedToRootViews;
+        invalidateSavedState();
+    }
+
+    public boolean isScopedToRootViews() {
+        return mScopedToRootViews;
+    }
+
+    /**
+     * Returns the number of Views whose start and end values were captured for the most recent change, with a View
+     * captured at both the start and end counting twice.
+     */
+    public int getCapturedViewCount() {
+        return mCapturedViewCount[0];
+    }
+
     @Override
     public void performChange(@NonNull final ViewGroup container, View from, View to, boolean isPush, @NonNull final ControllerChangeCompletedListener changeListener) {
         Transition transition = getTransition(container, from, to, isPush);
@@ -52,7 +98,7 @@ public abstract class TransitionChangeHandler extends ControllerChangeHandler {
             public void onTransitionResume(Transition transition) { }
         });
 
-        TransitionManager.beginDelayedTransition(container, transition);
+        TransitionManager.beginDelayedTransition(container, getScopedTransition(transition, from, to));
         if (from != null) {
             container.removeView(from);
         }
@@ -61,4 +107,58 @@ public abstract class TransitionChangeHandler extends ControllerChangeHandler {
         }
     }
 
+    private Transition getScopedTransition(@NonNull Transition transition, View from, View to) {
+        mCapturedViewCount[0] = 0;
+        CountingTransitionSet scopedTransition = new CountingTransitionSet(mCapturedViewCount);
+        scopedTransition.addTransition(transition);
+
+        if (mScopedToRootViews && transition.getTargets().isEmpty() && transition.getTargetIds().isEmpty()) {
+            if (from != null) {
+                scopedTransition.addTarget(from);
+            }
+            if (to != null) {
+                scopedTransition.addTarget(to);
+            }
+        }
+
+        applyExclusions(scopedTransition, getFromController());
+        applyExclusions(scopedTransition, getToController());
+
+        return scopedTransition;
+    }
+
+    private static void applyExclusions(@NonNull Transition transition, Controller controller) {
+        if (controller != null) {
+            TransitionExclusions exclusions = controller.getTransitionExclusions();
+            if (!exclusions.isEmpty()) {
+                exclusions.applyTo(transition);
+            }
+        }
+    }
+
+    /**
+     * Wraps the handler's Transition to apply scoping and exclusions to the whole capture, and to count how many
+     * Views were captured. TransitionManager clones this set, so the count is kept in an array shared by clones.
+     */
+    private static class CountingTransitionSet extends TransitionSet {
+
+        private final int[] mCapturedViewCount;
+
+        CountingTransitionSet(@NonNull int[] capturedViewCount) {
+            mCapturedViewCount = capturedViewCount;
+        }
+
+        @Override
+        public void captureStartValues(TransitionValues transitionValues) {
+            mCapturedViewCount[0]++;
+            super.captureStartValues(transitionValues);
+        }
+
+        @Override
+        public void captureEndValues(TransitionValues transitionValues) {
+            mCapturedViewCount[0]++;
+            super.captureEndValues(transitionValues);
+        }
+    }
+
 }
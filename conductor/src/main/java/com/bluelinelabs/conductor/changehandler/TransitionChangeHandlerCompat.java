@@ -7,7 +7,6 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.bluelinelabs.conductor.ControllerChangeHandler;
-import com.bluelinelabs.conductor.internal.ClassUtils;
 
 /**
  * A base {@link ControllerChangeHandler} that facilitates using {@link android.transition.Transition}s to replace Controller Views.
@@ -67,12 +66,12 @@ public class TransitionChangeHandlerCompat extends ControllerChangeHandler {
         super.restoreFromBundle(bundle);
 
         String transitionClassName = bundle.getString(KEY_TRANSITION_HANDLER_CLASS);
-        mTransitionChangeHandler = ClassUtils.newInstance(transitionClassName);
+        mTransitionChangeHandler = (TransitionChangeHandler)newInstance(transitionClassName);
         //noinspection ConstantConditions
         mTransitionChangeHandler.restoreFromBundle(bundle.getBundle(KEY_TRANSITION_HANDLER_STATE));
 
         String fallbackClassName = bundle.getString(KEY_FALLBACK_HANDLER_CLASS);
-        mFallbackChangeHandler = ClassUtils.newInstance(fallbackClassName);
+        mFallbackChangeHandler = newInstance(fallbackClassName);
         //noinspection ConstantConditions
         mFallbackChangeHandler.restoreFromBundle(bundle.getBundle(KEY_FALLBACK_HANDLER_STATE));
     }
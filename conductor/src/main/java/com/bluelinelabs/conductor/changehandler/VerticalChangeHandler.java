@@ -1,15 +1,10 @@
 package com.bluelinelabs.conductor.changehandler;
 
 import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.support.annotation.NonNull;
 import android.view.View;
 import android.view.ViewGroup;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * An {@link AnimatorChangeHandler} that will slide either slide a new View up or slide an old View down,
  * depending on whether a push or pop change is happening.
@@ -32,17 +27,15 @@ public class VerticalChangeHandler extends AnimatorChangeHandler {
 
     @Override
     protected Animator getAnimator(@NonNull ViewGroup container, View from, View to, boolean isPush, boolean toAddedToContainer) {
-        AnimatorSet animator = new AnimatorSet();
-        List<Animator> viewAnimators = new ArrayList<>();
+        ReusableAnimator animator = obtainReusableAnimator();
 
         if (isPush && to != null) {
-            viewAnimators.add(ObjectAnimator.ofFloat(to, View.TRANSLATION_Y, to.getHeight(), 0));
+            animator.animate(to, ReusableAnimator.TRANSLATION_Y, to.getHeight(), 0);
         } else if (!isPush && from != null) {
-            viewAnimators.add(ObjectAnimator.ofFloat(from, View.TRANSLATION_Y, from.getHeight()));
+            animator.animateTo(from, ReusableAnimator.TRANSLATION_Y, from.getHeight());
         }
 
-        animator.playTogether(viewAnimators);
-        return animator;
+        return animator.getAnimator();
     }
 
     @Override
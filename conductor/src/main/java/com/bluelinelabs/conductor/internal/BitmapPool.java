@@ -0,0 +1,86 @@
+package com.bluelinelabs.conductor.internal;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * A small pool of ARGB_8888 Bitmaps, keyed by size, used for view snapshots. Screen-sized Bitmaps are large, so
+ * only a few are kept, with the least recently released ones being recycled first.
+ */
+public class BitmapPool {
+
+    private static final int DEFAULT_MAX_BITMAPS = 3;
+
+    // Ordered from least to most recently released
+    private static final LinkedList<Bitmap> sBitmaps = new LinkedList<>();
+    private static int sMaxBitmaps = DEFAULT_MAX_BITMAPS;
+
+    private BitmapPool() { }
+
+    /**
+     * Returns a cleared Bitmap of the passed size, reusing a pooled one if possible.
+     */
+    @NonNull
+    public static Bitmap obtain(int width, int height) {
+        synchronized (sBitmaps) {
+            Iterator<Bitmap> iterator = sBitmaps.descendingIterator();
+            while (iterator.hasNext()) {
+                Bitmap bitmap = iterator.next();
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    iterator.remove();
+                    bitmap.eraseColor(0);
+                    return bitmap;
+                }
+            }
+        }
+
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Returns a Bitmap obtained from {@link #obtain(int, int)} to the pool. It must no longer be drawn anywhere.
+     */
+    public static void release(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled()) {
+            return;
+        }
+
+        synchronized (sBitmaps) {
+            if (!sBitmaps.contains(bitmap)) {
+                sBitmaps.add(bitmap);
+            }
+            trim();
+        }
+    }
+
+    /**
+     * Sets the maximum number of Bitmaps kept in the pool. 0 disables pooling.
+     */
+    public static void setMaxBitmaps(int maxBitmaps) {
+        synchronized (sBitmaps) {
+            sMaxBitmaps = maxBitmaps;
+            trim();
+        }
+    }
+
+    /**
+     * Recycles all pooled Bitmaps.
+     */
+    public static void clear() {
+        synchronized (sBitmaps) {
+            while (!sBitmaps.isEmpty()) {
+                sBitmaps.poll().recycle();
+            }
+        }
+    }
+
+    private static void trim() {
+        while (sBitmaps.size() > sMaxBitmaps) {
+            sBitmaps.poll().recycle();
+        }
+    }
+
+}
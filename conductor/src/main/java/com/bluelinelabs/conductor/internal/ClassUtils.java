@@ -2,8 +2,13 @@ package com.bluelinelabs.conductor.internal;
 
 import android.text.TextUtils;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class ClassUtils {
 
+    private static final Map<String, Class<?>> sClassCache = new ConcurrentHashMap<>();
+
     @SuppressWarnings("unchecked")
     public static <T> Class<? extends T> classForName(String className) {
         return classForName(className, true);
@@ -15,8 +20,15 @@ public class ClassUtils {
             return null;
         }
 
+        Class<?> cls = className != null ? sClassCache.get(className) : null;
+        if (cls != null) {
+            return (Class<? extends T>)cls;
+        }
+
         try {
-            return (Class<? extends T>)Class.forName(className);
+            cls = Class.forName(className);
+            sClassCache.put(className, cls);
+            return (Class<? extends T>)cls;
         } catch (Exception e) {
             throw new RuntimeException("An exception occurred while finding class for name " + className + ". " + e.getMessage());
         }
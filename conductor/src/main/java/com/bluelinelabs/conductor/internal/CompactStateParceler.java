@@ -0,0 +1,367 @@
+package com.bluelinelabs.conductor.internal;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parcels a list of saved state Bundles in a flattened form. Every key and String value is written once to a
+ * string table and referenced by index afterwards, and identical Bundles made up of only Strings and primitives
+ * (such as the saved state of most ControllerChangeHandlers) are only written once. Values of any other type are
+ * written as a regular Bundle alongside the flattened entries.
+ */
+public class CompactStateParceler implements Parcelable {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_STRING = 1;
+    private static final int TYPE_BOOLEAN = 2;
+    private static final int TYPE_INT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_BUNDLE = 5;
+    private static final int TYPE_SHARED_BUNDLE = 6;
+    private static final int TYPE_BUNDLE_REFERENCE = 7;
+    private static final int TYPE_BUNDLE_LIST = 8;
+
+    private final ArrayList<Bundle> mBundles;
+
+    public CompactStateParceler(ArrayList<Bundle> bundles) {
+        mBundles = bundles;
+    }
+
+    private CompactStateParceler(Parcel in, ClassLoader classLoader) {
+        mBundles = new Reader(in, classLoader).read();
+    }
+
+    public ArrayList<Bundle> getBundles() {
+        return mBundles;
+    }
+
+    public int describeContents() {
+        return 0;
+    }
+
+    public void writeToParcel(Parcel out, int flags) {
+        new Writer(out).write(mBundles);
+    }
+
+    private static int getType(Object value) {
+        if (value == null) {
+            return TYPE_NULL;
+        } else if (value instanceof String) {
+            return TYPE_STRING;
+        } else if (value instanceof Boolean) {
+            return TYPE_BOOLEAN;
+        } else if (value instanceof Integer) {
+            return TYPE_INT;
+        } else if (value instanceof Long) {
+            return TYPE_LONG;
+        } else if (value instanceof Bundle) {
+            return TYPE_BUNDLE;
+        } else if (value instanceof ArrayList && isBundleList((ArrayList)value)) {
+            return TYPE_BUNDLE_LIST;
+        } else {
+            return -1;
+        }
+    }
+
+    private static boolean isBundleList(List list) {
+        for (Object item : list) {
+            if (!(item instanceof Bundle)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Bundle deepCopy(Bundle bundle) {
+        Bundle copy = new Bundle(bundle);
+        for (String key : new ArrayList<>(bundle.keySet())) {
+            Object value = bundle.get(key);
+            if (value instanceof Bundle) {
+                copy.putBundle(key, deepCopy((Bundle)value));
+            }
+        }
+        return copy;
+    }
+
+    private static class Writer {
+
+        private final Parcel mOut;
+        private final Map<String, Integer> mStrings = new HashMap<>();
+        private final List<String> mStringTable = new ArrayList<>();
+        private final Map<String, Integer> mSharedBundles = new HashMap<>();
+
+        Writer(Parcel out) {
+            mOut = out;
+        }
+
+        void write(List<Bundle> bundles) {
+            for (Bundle bundle : bundles) {
+                collectStrings(bundle);
+            }
+
+            mOut.writeInt(FORMAT_VERSION);
+
+            mOut.writeInt(mStringTable.size());
+            for (String string : mStringTable) {
+                mOut.writeString(string);
+            }
+
+            mOut.writeInt(bundles.size());
+            for (Bundle bundle : bundles) {
+                writeBundle(bundle);
+            }
+        }
+
+        private void collectStrings(Bundle bundle) {
+            for (String key : bundle.keySet()) {
+                Object value = bundle.get(key);
+                switch (getType(value)) {
+                    case TYPE_STRING:
+                        intern((String)value);
+                        intern(key);
+                        break;
+                    case TYPE_BUNDLE:
+                        collectStrings((Bundle)value);
+                        intern(key);
+                        break;
+                    case TYPE_BUNDLE_LIST:
+                        for (Object item : (List)value) {
+                            collectStrings((Bundle)item);
+                        }
+                        intern(key);
+                        break;
+                    case -1:
+                        // Written as part of the Bundle's raw values, so its key isn't needed in the table
+                        break;
+                    default:
+                        intern(key);
+                        break;
+                }
+            }
+        }
+
+        private void intern(String string) {
+            if (!mStrings.containsKey(string)) {
+                mStrings.put(string, mStringTable.size());
+                mStringTable.add(string);
+            }
+        }
+
+        private void writeBundle(Bundle bundle) {
+            String signature = getSignature(bundle);
+            if (signature != null) {
+                Integer reference = mSharedBundles.get(signature);
+                if (reference != null) {
+                    mOut.writeInt(TYPE_BUNDLE_REFERENCE);
+                    mOut.writeInt(reference);
+                    return;
+                }
+
+                mSharedBundles.put(signature, mSharedBundles.size());
+                mOut.writeInt(TYPE_SHARED_BUNDLE);
+            } else {
+                mOut.writeInt(TYPE_BUNDLE);
+            }
+
+            List<String> flattenedKeys = new ArrayList<>(bundle.size());
+            Bundle rawValues = null;
+            for (String key : bundle.keySet()) {
+                if (getType(bundle.get(key)) != -1) {
+                    flattenedKeys.add(key);
+                } else if (rawValues == null) {
+                    rawValues = new Bundle(bundle);
+                }
+            }
+
+            mOut.writeInt(flattenedKeys.size());
+            for (String key : flattenedKeys) {
+                mOut.writeInt(mStrings.get(key));
+                writeValue(bundle.get(key));
+
+                if (rawValues != null) {
+                    rawValues.remove(key);
+                }
+            }
+
+            mOut.writeBundle(rawValues);
+        }
+
+        private void writeValue(Object value) {
+            int type = getType(value);
+            if (type != TYPE_BUNDLE) {
+                // Bundles write their own type, since it depends on whether or not they can be shared.
+                mOut.writeInt(type);
+            }
+
+            switch (type) {
+                case TYPE_STRING:
+                    mOut.writeInt(mStrings.get(value));
+                    break;
+                case TYPE_BOOLEAN:
+                    mOut.writeInt((Boolean)value ? 1 : 0);
+                    break;
+                case TYPE_INT:
+                    mOut.writeInt((Integer)value);
+                    break;
+                case TYPE_LONG:
+                    mOut.writeLong((Long)value);
+                    break;
+                case TYPE_BUNDLE:
+                    writeBundle((Bundle)value);
+                    break;
+                case TYPE_BUNDLE_LIST:
+                    List list = (List)value;
+                    mOut.writeInt(list.size());
+                    for (Object item : list) {
+                        writeBundle((Bundle)item);
+                    }
+                    break;
+            }
+        }
+
+        /**
+         * Returns a String that uniquely describes the passed Bundle's contents if it only contains Strings,
+         * primitives and other Bundles that do, or null if it can't be shared.
+         */
+        private static String getSignature(Bundle bundle) {
+            StringBuilder builder = new StringBuilder();
+            return appendSignature(bundle, builder) ? builder.toString() : null;
+        }
+
+        private static boolean appendSignature(Bundle bundle, StringBuilder builder) {
+            List<String> keys = new ArrayList<>(bundle.keySet());
+            Collections.sort(keys);
+
+            builder.append('{');
+            for (String key : keys) {
+                Object value = bundle.get(key);
+                int type = getType(value);
+                if (type == -1 || type == TYPE_BUNDLE_LIST || type == TYPE_NULL) {
+                    return false;
+                }
+
+                builder.append(key.length()).append(':').append(key).append(type);
+                if (type == TYPE_BUNDLE) {
+                    if (!appendSignature((Bundle)value, builder)) {
+                        return false;
+                    }
+                } else {
+                    String string = value.toString();
+                    builder.append(string.length()).append(':').append(string);
+                }
+            }
+            builder.append('}');
+            return true;
+        }
+    }
+
+    private static class Reader {
+
+        private final Parcel mIn;
+        private final ClassLoader mClassLoader;
+        private final List<Bundle> mSharedBundles = new ArrayList<>();
+        private String[] mStringTable;
+
+        Reader(Parcel in, ClassLoader classLoader) {
+            mIn = in;
+            mClassLoader = classLoader;
+        }
+
+        ArrayList<Bundle> read() {
+            int version = mIn.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new RuntimeException("Unable to read saved state with unknown format version " + version);
+            }
+
+            mStringTable = new String[mIn.readInt()];
+            for (int i = 0; i < mStringTable.length; i++) {
+                mStringTable[i] = mIn.readString();
+            }
+
+            int size = mIn.readInt();
+            ArrayList<Bundle> bundles = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                bundles.add(readBundle(mIn.readInt()));
+            }
+            return bundles;
+        }
+
+        private Bundle readBundle(int type) {
+            if (type == TYPE_BUNDLE_REFERENCE) {
+                // Shared Bundles are copied so that nothing restored from them can affect the others.
+                return deepCopy(mSharedBundles.get(mIn.readInt()));
+            }
+
+            Bundle bundle = new Bundle();
+            if (type == TYPE_SHARED_BUNDLE) {
+                mSharedBundles.add(bundle);
+            }
+
+            int size = mIn.readInt();
+            for (int i = 0; i < size; i++) {
+                String key = mStringTable[mIn.readInt()];
+                int valueType = mIn.readInt();
+
+                switch (valueType) {
+                    case TYPE_NULL:
+                        bundle.putString(key, null);
+                        break;
+                    case TYPE_STRING:
+                        bundle.putString(key, mStringTable[mIn.readInt()]);
+                        break;
+                    case TYPE_BOOLEAN:
+                        bundle.putBoolean(key, mIn.readInt() != 0);
+                        break;
+                    case TYPE_INT:
+                        bundle.putInt(key, mIn.readInt());
+                        break;
+                    case TYPE_LONG:
+                        bundle.putLong(key, mIn.readLong());
+                        break;
+                    case TYPE_BUNDLE_LIST:
+                        int listSize = mIn.readInt();
+                        ArrayList<Bundle> list = new ArrayList<>(listSize);
+                        for (int j = 0; j < listSize; j++) {
+                            list.add(readBundle(mIn.readInt()));
+                        }
+                        bundle.putParcelableArrayList(key, list);
+                        break;
+                    default:
+                        bundle.putBundle(key, readBundle(valueType));
+                        break;
+                }
+            }
+
+            Bundle rawValues = mIn.readBundle(mClassLoader);
+            if (rawValues != null) {
+                bundle.putAll(rawValues);
+            }
+
+            return bundle;
+        }
+    }
+
+    public static final Parcelable.ClassLoaderCreator<CompactStateParceler> CREATOR = new Parcelable.ClassLoaderCreator<CompactStateParceler>() {
+        public CompactStateParceler createFromParcel(Parcel in) {
+            return new CompactStateParceler(in, CompactStateParceler.class.getClassLoader());
+        }
+
+        public CompactStateParceler createFromParcel(Parcel in, ClassLoader classLoader) {
+            return new CompactStateParceler(in, classLoader != null ? classLoader : CompactStateParceler.class.getClassLoader());
+        }
+
+        public CompactStateParceler[] newArray(int size) {
+            return new CompactStateParceler[size];
+        }
+    };
+
+}
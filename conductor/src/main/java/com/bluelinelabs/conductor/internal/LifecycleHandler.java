@@ -105,6 +105,15 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         outState.putParcelable(KEY_ACTIVITY_REQUEST_CODES, new StringSparseArrayParceler(mActivityRequestMap));
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        for (Router router : mRouterMap.values()) {
+            router.onTrimMemory(level);
+        }
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
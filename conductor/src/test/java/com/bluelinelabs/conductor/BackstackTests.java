@@ -1,9 +1,14 @@
 package com.bluelinelabs.conductor;
 
+import android.os.Bundle;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+
 public class BackstackTests {
 
     private Backstack mBackstack;
@@ -63,4 +68,68 @@ public class BackstackTests {
         Assert.assertEquals(1, mBackstack.size());
         Assert.assertEquals(transaction1, mBackstack.peek());
     }
+
+    @Test
+    public void testLazyRestore() {
+        RouterTransaction transaction1 = RouterTransaction.builder(new TestController()).tag("1").build();
+        RouterTransaction transaction2 = RouterTransaction.builder(new TestController()).tag("2").build();
+        RouterTransaction transaction3 = RouterTransaction.builder(new TestController()).tag("3").build();
+
+        mBackstack.push(transaction1);
+        mBackstack.push(transaction2);
+        mBackstack.push(transaction3);
+        mBackstack.setLazyRestoreEnabled(true);
+
+        Bundle savedState = new Bundle();
+        mBackstack.detachAndSaveInstanceState(savedState);
+
+        Backstack restoredBackstack = new Backstack();
+        restoredBackstack.restoreInstanceState(savedState);
+
+        Assert.assertEquals(3, restoredBackstack.size());
+        Assert.assertEquals(1, getRestoredCount(restoredBackstack));
+        Assert.assertEquals("3", restoredBackstack.peek().tag);
+
+        Controller restored2 = restoredBackstack.getControllerWithInstanceId(transaction2.controller.getInstanceId());
+        Assert.assertNotNull(restored2);
+        Assert.assertEquals(2, getRestoredCount(restoredBackstack));
+
+        restoredBackstack.pop();
+        restoredBackstack.pop();
+
+        Assert.assertEquals(1, restoredBackstack.size());
+        Assert.assertEquals("1", restoredBackstack.peek().tag);
+        Assert.assertEquals(transaction1.controller.getInstanceId(), restoredBackstack.peek().controller.getInstanceId());
+    }
+
+    @Test
+    public void testLegacyStateRestore() {
+        RouterTransaction transaction1 = RouterTransaction.builder(new TestController()).tag("1").build();
+        RouterTransaction transaction2 = RouterTransaction.builder(new TestController()).tag("2").build();
+
+        // State saved before the compact format was introduced is a list of transaction Bundles, top first
+        ArrayList<Bundle> entryBundles = new ArrayList<>();
+        entryBundles.add(transaction2.detachAndSaveInstanceState());
+        entryBundles.add(transaction1.detachAndSaveInstanceState());
+
+        Bundle savedState = new Bundle();
+        savedState.putParcelableArrayList("Backstack.entries", entryBundles);
+
+        mBackstack.restoreInstanceState(savedState);
+
+        Assert.assertEquals(2, mBackstack.size());
+        Assert.assertEquals("2", mBackstack.peek().tag);
+        Assert.assertEquals(transaction2.controller.getInstanceId(), mBackstack.peek().controller.getInstanceId());
+        Assert.assertEquals("1", mBackstack.root().tag);
+    }
+
+    private int getRestoredCount(Backstack backstack) {
+        int count = 0;
+        Iterator<RouterTransaction> iterator = backstack.iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
 }
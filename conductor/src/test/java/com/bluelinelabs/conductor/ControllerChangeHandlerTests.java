@@ -6,12 +6,17 @@ import com.bluelinelabs.conductor.changehandler.HorizontalChangeHandler;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.lang.reflect.Constructor;
+
 public class ControllerChangeHandlerTests {
 
     @Test
     public void testSaveRestore() {
         HorizontalChangeHandler horizontalChangeHandler = new HorizontalChangeHandler();
         FadeChangeHandler fadeChangeHandler = new FadeChangeHandler(120, false);
+        horizontalChangeHandler.setUsesHardwareLayers(true);
+        fadeChangeHandler.setMeasuresSynchronously(true);
+        fadeChangeHandler.setSnapshotsFromView(true);
 
         RouterTransaction transaction = RouterTransaction.builder(new TestController())
                 .pushChangeHandler(horizontalChangeHandler)
@@ -30,9 +35,28 @@ public class ControllerChangeHandlerTests {
 
         Assert.assertEquals(horizontalChangeHandler.getAnimationDuration(), restoredHorizontalCast.getAnimationDuration());
         Assert.assertEquals(horizontalChangeHandler.removesFromViewOnPush(), restoredHorizontalCast.removesFromViewOnPush());
+        Assert.assertTrue(restoredHorizontalCast.usesHardwareLayers());
 
         Assert.assertEquals(fadeChangeHandler.getAnimationDuration(), restoredFadeCast.getAnimationDuration());
         Assert.assertEquals(fadeChangeHandler.removesFromViewOnPush(), restoredFadeCast.removesFromViewOnPush());
+        Assert.assertFalse(restoredFadeCast.usesHardwareLayers());
+        Assert.assertTrue(restoredFadeCast.measuresSynchronously());
+        Assert.assertTrue(restoredFadeCast.snapshotsFromView());
+        Assert.assertFalse(restoredHorizontalCast.snapshotsFromView());
+    }
+
+    @Test
+    public void testDefaultConstructorCached() throws Exception {
+        Constructor<?> constructor = ControllerChangeHandler.getDefaultConstructor(HorizontalChangeHandler.class);
+
+        // Class.getConstructor() returns a new copy on every call, so only a cached lookup returns the same instance
+        Assert.assertSame(constructor, ControllerChangeHandler.getDefaultConstructor(HorizontalChangeHandler.class));
+        Assert.assertNotSame(constructor, HorizontalChangeHandler.class.getConstructor());
+        Assert.assertNotSame(constructor, ControllerChangeHandler.getDefaultConstructor(FadeChangeHandler.class));
+
+        // Restoring also looks up the default constructor, which must reuse the cached lookup
+        ControllerChangeHandler.newInstance(HorizontalChangeHandler.class.getName());
+        Assert.assertSame(constructor, ControllerChangeHandler.getDefaultConstructor(HorizontalChangeHandler.class));
     }
 
 }
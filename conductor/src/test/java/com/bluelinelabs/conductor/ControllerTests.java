@@ -1,6 +1,7 @@
 package com.bluelinelabs.conductor;
 
 import android.app.Activity;
+import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,6 +21,11 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import org.robolectric.util.ActivityController;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE)
 public class ControllerTests {
@@ -199,6 +205,104 @@ public class ControllerTests {
         Assert.assertNull(controller.getView());
     }
 
+    @Test
+    public void testLruViewRetention() {
+        mRouter.setLruViewRetention(2, 0);
+
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        Controller controller3 = new TestController();
+
+        for (Controller controller : new Controller[] { controller1, controller2, controller3 }) {
+            controller.setRouter(mRouter);
+            View view = controller.inflate(new FrameLayout(mRouter.getActivity()));
+            ViewUtils.setAttached(view, true);
+            ViewUtils.setAttached(view, false);
+        }
+
+        // Only the two most recently detached views are retained
+        Assert.assertNull(controller1.getView());
+        Assert.assertNotNull(controller2.getView());
+        Assert.assertNotNull(controller3.getView());
+
+        View view2 = controller2.getView();
+        Assert.assertSame(view2, controller2.inflate(new FrameLayout(mRouter.getActivity())));
+        Assert.assertEquals(1, mRouter.getViewRetentionHits());
+        Assert.assertEquals(0, mRouter.getViewRetentionMisses());
+
+        controller1.inflate(new FrameLayout(mRouter.getActivity()));
+        Assert.assertEquals(1, mRouter.getViewRetentionHits());
+        Assert.assertEquals(1, mRouter.getViewRetentionMisses());
+
+        // Disabling releases everything still retained
+        mRouter.setLruViewRetention(0, 0);
+        Assert.assertNull(controller3.getView());
+    }
+
+    @Test
+    public void testViewPool() {
+        mRouter.setViewPool(4, 1);
+
+        PooledController controller1 = new PooledController();
+        PooledController controller2 = new PooledController();
+        PooledController controller3 = new PooledController();
+
+        View view1 = null;
+        for (PooledController controller : new PooledController[] { controller1, controller2 }) {
+            controller.setRouter(mRouter);
+            View view = controller.inflate(new FrameLayout(mRouter.getActivity()));
+            ViewUtils.setAttached(view, true);
+            ViewUtils.setAttached(view, false);
+            if (view1 == null) {
+                view1 = view;
+            }
+        }
+
+        // Only one view per key is pooled, so controller2's view was dropped
+        Assert.assertEquals(0, controller1.bindViewCount);
+        Assert.assertEquals(0, controller2.bindViewCount);
+
+        controller3.setRouter(mRouter);
+        Assert.assertSame(view1, controller3.inflate(new FrameLayout(mRouter.getActivity())));
+        Assert.assertEquals(1, controller3.bindViewCount);
+        Assert.assertEquals(1, mRouter.getViewPoolHits());
+
+        // The pooled view no longer reports lifecycle events to its previous Controller
+        ViewUtils.setAttached(view1, true);
+        Assert.assertTrue(controller3.isAttached());
+        Assert.assertFalse(controller1.isAttached());
+
+        PooledController controller4 = new PooledController();
+        controller4.setRouter(mRouter);
+        controller4.inflate(new FrameLayout(mRouter.getActivity()));
+        Assert.assertEquals(0, controller4.bindViewCount);
+        Assert.assertEquals(3, mRouter.getViewPoolMisses());
+    }
+
+    @Test
+    public void testTransitionExclusions() {
+        Controller controller = new TestController();
+        controller.setRouter(mRouter);
+        View view = controller.inflate(new FrameLayout(mRouter.getActivity()));
+
+        TransitionExclusions exclusions = controller.getTransitionExclusions();
+        Assert.assertSame(exclusions, controller.getTransitionExclusions());
+        Assert.assertTrue(exclusions.isEmpty());
+
+        exclusions.setHeavy(view, true);
+        Assert.assertFalse(exclusions.isEmpty());
+
+        // Heavy views don't outlive the view hierarchy they belong to
+        ViewUtils.setAttached(view, true);
+        ViewUtils.setAttached(view, false);
+        Assert.assertNull(controller.getView());
+        Assert.assertTrue(exclusions.isEmpty());
+
+        exclusions.excludeId(TestController.VIEW_ID);
+        exclusions.excludeClass(FrameLayout.class);
+        Assert.assertFalse(exclusions.isEmpty());
+    }
+
     private ChangeHandler getPushHandler(final int changeStart, final int changeEnd, final int bindView, final int attach, final int unbindView, final int detach, final int destroy) {
         return new ChangeHandler(new ChangeHandlerListener() {
             @Override
@@ -225,6 +329,132 @@ public class ControllerTests {
         });
     }
 
+    @Test
+    public void testLifecycleListenerEvents() {
+        LifecycleListener attachListener = new LifecycleListener() {
+            @Override
+            public void postAttach(@NonNull Controller controller, @NonNull View view) { }
+        };
+        final LifecycleListeners listeners = new LifecycleListeners();
+        LifecycleListener detachListener = new LifecycleListener() {
+            @Override
+            public void preDetach(@NonNull Controller controller, @NonNull View view) {
+                listeners.remove(this);
+            }
+
+            @Override
+            public void postAttach(@NonNull Controller controller, @NonNull View view) { }
+        };
+
+        Assert.assertEquals(1 << LifecycleListeners.POST_ATTACH, LifecycleListeners.getEventMask(attachListener.getClass()));
+
+        Assert.assertTrue(listeners.add(attachListener));
+        Assert.assertTrue(listeners.add(detachListener));
+        Assert.assertFalse(listeners.add(attachListener));
+
+        // Each event only holds the listeners that override it
+        Assert.assertArrayEquals(new LifecycleListener[] { attachListener, detachListener }, listeners.get(LifecycleListeners.POST_ATTACH));
+        Assert.assertArrayEquals(new LifecycleListener[] { detachListener }, listeners.get(LifecycleListeners.PRE_DETACH));
+        Assert.assertEquals(0, listeners.get(LifecycleListeners.PRE_ATTACH).length);
+        Assert.assertEquals(0, listeners.get(LifecycleListeners.SAVE_INSTANCE_STATE).length);
+
+        // Listeners can remove themselves while an event is being dispatched
+        for (LifecycleListener listener : listeners.get(LifecycleListeners.PRE_DETACH)) {
+            listener.preDetach(new TestController(), new View(mRouter.getActivity()));
+        }
+        Assert.assertEquals(0, listeners.get(LifecycleListeners.PRE_DETACH).length);
+        Assert.assertArrayEquals(new LifecycleListener[] { attachListener }, listeners.get(LifecycleListeners.POST_ATTACH));
+    }
+
+    @Test
+    public void testInstanceIdGeneration() {
+        SessionInstanceIdGenerator generator = new SessionInstanceIdGenerator(42);
+        Set<String> instanceIds = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(instanceIds.add(generator.newInstanceId()));
+        }
+
+        // IDs restored from a previous session must not collide with the current session's IDs
+        SessionInstanceIdGenerator nextSessionGenerator = new SessionInstanceIdGenerator(43);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(instanceIds.add(nextSessionGenerator.newInstanceId()));
+        }
+    }
+
+    @Test
+    public void testCustomInstanceIdGenerator() {
+        Conductor.setInstanceIdGenerator(new InstanceIdGenerator() {
+            @NonNull
+            @Override
+            public String newInstanceId() {
+                return "custom";
+            }
+        });
+
+        try {
+            Assert.assertEquals("custom", new TestController().getInstanceId());
+        } finally {
+            Conductor.setInstanceIdGenerator(null);
+        }
+
+        Assert.assertNotEquals("custom", new TestController().getInstanceId());
+    }
+
+    @Test
+    public void testRestoreConstructorCached() {
+        Controller.RestoreConstructor restoreConstructor = Controller.getRestoreConstructor(TestController.class);
+
+        // Class.getConstructors() returns new copies on every call, so only a cached lookup returns the same instance
+        Assert.assertSame(restoreConstructor, Controller.getRestoreConstructor(TestController.class));
+        Assert.assertSame(restoreConstructor, Controller.getRestoreConstructor(TestController.class));
+        Assert.assertNotSame(restoreConstructor.constructor, TestController.class.getConstructors()[0]);
+
+        // Pushing also validates the constructor, which must reuse the cached lookup
+        mRouter.pushController(RouterTransaction.builder(new TestController()).build());
+        Assert.assertSame(restoreConstructor, Controller.getRestoreConstructor(TestController.class));
+    }
+
+    @Test
+    public void testFactoryRegistry() {
+        final List<Object> createdInstances = new ArrayList<>();
+        Conductor.setFactoryRegistry(new FactoryRegistry() {
+            @Override
+            public boolean hasFactory(@NonNull Class<?> cls) {
+                return cls == TestController.class || cls == ChangeHandler.class;
+            }
+
+            @Override
+            public Controller newController(@NonNull String className, Bundle args) {
+                Controller controller = TestController.class.getCanonicalName().equals(className) ? new TestController() : null;
+                createdInstances.add(controller);
+                return controller;
+            }
+
+            @Override
+            public ControllerChangeHandler newChangeHandler(@NonNull String className) {
+                ControllerChangeHandler changeHandler = ChangeHandler.class.getCanonicalName().equals(className) ? new ChangeHandler() : null;
+                createdInstances.add(changeHandler);
+                return changeHandler;
+            }
+        });
+
+        try {
+            Controller controller = new TestController();
+            Controller restoredController = Controller.newInstance(controller.detachAndSaveInstanceState());
+
+            Assert.assertEquals(1, createdInstances.size());
+            Assert.assertSame(createdInstances.get(0), restoredController);
+            Assert.assertEquals(controller.getInstanceId(), restoredController.getInstanceId());
+
+            ControllerChangeHandler restoredChangeHandler = ControllerChangeHandler.fromBundle(new ChangeHandler().toBundle());
+
+            Assert.assertEquals(2, createdInstances.size());
+            Assert.assertSame(createdInstances.get(1), restoredChangeHandler);
+        } finally {
+            Conductor.setFactoryRegistry(null);
+        }
+    }
+
     private void assertCalls(int changeStart, int changeEnd, int bindView, int attach, int unbindView, int detach, int destroy) {
         Assert.assertEquals(changeStart, mChangeStartCalls);
         Assert.assertEquals(changeEnd, mChangeEndCalls);
@@ -274,6 +504,21 @@ public class ControllerTests {
         });
     }
 
+    public static class PooledController extends TestController {
+
+        int bindViewCount;
+
+        @Override
+        protected Object getViewPoolKey() {
+            return PooledController.class;
+        }
+
+        @Override
+        protected void onBindView(@NonNull View view) {
+            bindViewCount++;
+        }
+    }
+
     interface ChangeHandlerListener {
         void performChange(@NonNull ViewGroup container, View from, View to, boolean isPush, @NonNull ControllerChangeCompletedListener changeListener);
     }
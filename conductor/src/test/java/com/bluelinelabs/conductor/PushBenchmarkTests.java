@@ -0,0 +1,72 @@
+package com.bluelinelabs.conductor;
+
+import android.app.Activity;
+import android.widget.FrameLayout;
+
+import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Compares the cost of pushing Controllers when every constructor lookup misses the per-class cache, as every
+ * lookup did before the cache existed, to the cost with the cache in place. Only runs when the
+ * "conductor.runBenchmarks" system property is true, which the build sets when run with -PrunBenchmarks.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PushBenchmarkTests {
+
+    private static final int PUSH_COUNT = 1000;
+
+    private Router mRouter;
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue(Boolean.getBoolean("conductor.runBenchmarks"));
+
+        Activity activity = Robolectric.buildActivity(TestActivity.class).create().get();
+        mRouter = Conductor.attachRouter(activity, new FrameLayout(activity), null);
+        mRouter.setRoot(new TestController());
+    }
+
+    @Test
+    public void testPushCost() {
+        // Warm up so class loading isn't attributed to either run
+        pushControllers(10, false);
+        mRouter.popToRoot();
+
+        long uncachedNanos = pushControllers(PUSH_COUNT, false);
+        mRouter.popToRoot();
+
+        long cachedNanos = pushControllers(PUSH_COUNT, true);
+
+        System.out.println(String.format("Pushing %d controllers: %.2fms without the constructor cache, %.2fms with it",
+                PUSH_COUNT, uncachedNanos / 1000000f, cachedNanos / 1000000f));
+
+        Assert.assertEquals(PUSH_COUNT + 1, mRouter.getBackstackSize());
+    }
+
+    private long pushControllers(int count, boolean cached) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            if (!cached) {
+                Controller.clearConstructorCache();
+                ControllerChangeHandler.clearConstructorCache();
+            }
+
+            mRouter.pushController(RouterTransaction.builder(new TestController())
+                    .pushChangeHandler(new SimpleSwapChangeHandler())
+                    .popChangeHandler(new SimpleSwapChangeHandler())
+                    .build());
+        }
+        return System.nanoTime() - start;
+    }
+
+}
@@ -1,8 +1,27 @@
 package com.bluelinelabs.conductor;
 
+import android.animation.Animator;
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.support.annotation.IdRes;
+import android.support.annotation.NonNull;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
+import com.bluelinelabs.conductor.Controller.LifecycleListener;
+import com.bluelinelabs.conductor.Controller.RetainViewMode;
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeCompletedListener;
+import com.bluelinelabs.conductor.ControllerTransaction.ControllerChangeType;
+import com.bluelinelabs.conductor.changehandler.AutoTransitionChangeHandler;
+import com.bluelinelabs.conductor.changehandler.HorizontalChangeHandler;
+import com.bluelinelabs.conductor.changehandler.ReusableAnimator;
+import com.bluelinelabs.conductor.internal.CompactStateParceler;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -10,16 +29,30 @@ import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ActivityController;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE)
 public class RouterTests {
 
+    private ActivityController<TestActivity> mActivityController;
     private Router mRouter;
 
     @Before
     public void setup() {
-        Activity activity = Robolectric.buildActivity(TestActivity.class).create().get();
+        mActivityController = Robolectric.buildActivity(TestActivity.class).create();
+        Activity activity = mActivityController.get();
         mRouter = Conductor.attachRouter(activity, new FrameLayout(activity), null);
     }
 
@@ -63,6 +96,50 @@ public class RouterTests {
         Assert.assertNull(mRouter.getControllerWithInstanceId("fake id"));
     }
 
+    @Test
+    public void testGetChildByInstanceId() {
+        Controller parent = new TestController();
+        Controller child = new TestController();
+        Controller lateChild = new TestController();
+
+        parent.addChildController(ChildControllerTransaction.builder(child, TestController.VIEW_ID).build());
+        mRouter.pushController(RouterTransaction.builder(parent).build());
+
+        Assert.assertEquals(child, mRouter.getControllerWithInstanceId(child.getInstanceId()));
+
+        parent.addChildController(ChildControllerTransaction.builder(lateChild, TestController.VIEW_ID).build());
+        Assert.assertEquals(lateChild, mRouter.getControllerWithInstanceId(lateChild.getInstanceId()));
+
+        parent.removeChildController(lateChild);
+        Assert.assertNull(mRouter.getControllerWithInstanceId(lateChild.getInstanceId()));
+
+        mRouter.popCurrentController();
+        Assert.assertNull(mRouter.getControllerWithInstanceId(parent.getInstanceId()));
+        Assert.assertNull(mRouter.getControllerWithInstanceId(child.getInstanceId()));
+    }
+
+    @Test
+    public void testGetByDuplicateTag() {
+        String tag = "duplicate";
+
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+
+        mRouter.pushController(RouterTransaction.builder(controller1)
+                .tag(tag)
+                .build());
+
+        mRouter.pushController(RouterTransaction.builder(controller2)
+                .tag(tag)
+                .build());
+
+        Assert.assertEquals(controller2, mRouter.getControllerWithTag(tag));
+
+        mRouter.popCurrentController();
+
+        Assert.assertEquals(controller1, mRouter.getControllerWithTag(tag));
+    }
+
     @Test
     public void testGetByTag() {
         String controller1Tag = "controller1";
@@ -185,4 +262,944 @@ public class RouterTests {
         Assert.assertEquals(controller3, mRouter.getControllerWithTag(controller3Tag));
     }
 
+    @Test
+    public void testSetBackstack() {
+        Controller rootController = new TestController();
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        Controller controller3 = new TestController();
+
+        RouterTransaction transaction1 = RouterTransaction.builder(controller1).build();
+        RouterTransaction transaction2 = RouterTransaction.builder(controller2).build();
+        RouterTransaction transaction3 = RouterTransaction.builder(controller3).build();
+
+        mRouter.setRoot(rootController);
+        mRouter.setBackstack(Arrays.asList(mRouter.getBackstack().get(0), transaction2, transaction3));
+
+        Assert.assertEquals(3, mRouter.getBackstackSize());
+        Assert.assertNull(controller2.getView());
+        Assert.assertNotNull(controller3.getView());
+        Assert.assertEquals(controller2, mRouter.getControllerWithInstanceId(controller2.getInstanceId()));
+
+        mRouter.setBackstack(Arrays.asList(transaction1, transaction3));
+
+        Assert.assertEquals(2, mRouter.getBackstackSize());
+        Assert.assertTrue(rootController.isDestroyed());
+        Assert.assertTrue(controller2.isDestroyed());
+        Assert.assertFalse(controller3.isDestroyed());
+        Assert.assertNull(controller1.getView());
+        Assert.assertEquals(transaction1, mRouter.getBackstack().get(0));
+        Assert.assertEquals(transaction3, mRouter.getBackstack().get(1));
+    }
+
+    @Test
+    public void testCompactSavedState() {
+        Backstack backstack = new Backstack();
+        for (int i = 0; i < 20; i++) {
+            backstack.push(RouterTransaction.builder(new TestController())
+                    .pushChangeHandler(new HorizontalChangeHandler())
+                    .popChangeHandler(new HorizontalChangeHandler())
+                    .tag("tag" + i)
+                    .build());
+        }
+
+        ArrayList<Bundle> legacyEntries = new ArrayList<>();
+        for (RouterTransaction transaction : backstack) {
+            legacyEntries.add(transaction.detachAndSaveInstanceState());
+        }
+        Bundle legacyState = new Bundle();
+        legacyState.putParcelableArrayList("Backstack.entries", legacyEntries);
+
+        Bundle compactState = new Bundle();
+        backstack.detachAndSaveInstanceState(compactState);
+
+        Parcel legacyParcel = Parcel.obtain();
+        legacyParcel.writeBundle(legacyState);
+        Parcel compactParcel = Parcel.obtain();
+        compactParcel.writeBundle(compactState);
+
+        Assert.assertTrue(compactParcel.dataSize() < legacyParcel.dataSize());
+        legacyParcel.recycle();
+
+        compactParcel.setDataPosition(0);
+        Bundle restoredState = compactParcel.readBundle(getClass().getClassLoader());
+        compactParcel.recycle();
+
+        Backstack restoredBackstack = new Backstack();
+        restoredBackstack.restoreInstanceState(restoredState);
+
+        Assert.assertEquals(backstack.size(), restoredBackstack.size());
+
+        Iterator<RouterTransaction> restoredIterator = restoredBackstack.iterator();
+        for (RouterTransaction transaction : backstack) {
+            RouterTransaction restoredTransaction = restoredIterator.next();
+            Assert.assertEquals(transaction.tag, restoredTransaction.tag);
+            Assert.assertEquals(transaction.controller.getInstanceId(), restoredTransaction.controller.getInstanceId());
+            Assert.assertTrue(restoredTransaction.getPushControllerChangeHandler() instanceof HorizontalChangeHandler);
+            Assert.assertTrue(restoredTransaction.getPopControllerChangeHandler() instanceof HorizontalChangeHandler);
+        }
+    }
+
+    @Test
+    public void testSavedStateCaching() {
+        mRouter.setSavedStateCachingEnabled(true);
+
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        Controller controller3 = new TestController();
+        mRouter.setRoot(controller1);
+        mRouter.pushController(RouterTransaction.builder(controller2).build());
+        mRouter.pushController(RouterTransaction.builder(controller3).build());
+
+        List<Bundle> firstSave = saveBackstackEntries();
+        List<Bundle> secondSave = saveBackstackEntries();
+
+        Assert.assertEquals(3, secondSave.size());
+        for (int i = 0; i < secondSave.size(); i++) {
+            Assert.assertSame(firstSave.get(i), secondSave.get(i));
+        }
+
+        controller2.invalidateSavedState();
+        List<Bundle> thirdSave = saveBackstackEntries();
+
+        Assert.assertSame(secondSave.get(0), thirdSave.get(0));
+        Assert.assertNotSame(secondSave.get(1), thirdSave.get(1));
+        Assert.assertSame(secondSave.get(2), thirdSave.get(2));
+    }
+
+    @Test
+    public void testSavedStateCachingWithChangedHandlers() {
+        mRouter.setSavedStateCachingEnabled(true);
+
+        HorizontalChangeHandler popHandler = new HorizontalChangeHandler();
+        HorizontalChangeHandler overriddenPopHandler = new HorizontalChangeHandler();
+        Controller controller1 = new TestController();
+        mRouter.setRoot(controller1);
+        mRouter.pushController(RouterTransaction.builder(new TestController()).popChangeHandler(popHandler).build());
+        controller1.overridePopHandler(overriddenPopHandler);
+
+        List<Bundle> firstSave = saveBackstackEntries();
+        popHandler.setUsesHardwareLayers(true);
+        overriddenPopHandler.setSnapshotsFromView(true);
+        List<Bundle> secondSave = saveBackstackEntries();
+
+        Assert.assertNotSame(firstSave.get(0), secondSave.get(0));
+        Bundle popHandlerState = secondSave.get(0).getBundle("ControllerTransaction.popControllerChangeHandler").getBundle("ControllerChangeHandler.savedState");
+        Assert.assertTrue(popHandlerState.getBoolean("AnimatorChangeHandler.usesHardwareLayers"));
+
+        Assert.assertNotSame(firstSave.get(1), secondSave.get(1));
+        Bundle controllerState = secondSave.get(1).getBundle("ControllerTransaction.controller.bundle");
+        Bundle overriddenPopHandlerState = controllerState.getBundle("Controller.overriddenPopHandler").getBundle("ControllerChangeHandler.savedState");
+        Assert.assertTrue(overriddenPopHandlerState.getBoolean("AnimatorChangeHandler.snapshotsFromView"));
+    }
+
+    @Test
+    public void testRestoredSavedStateCaching() {
+        mRouter.setSavedStateCachingEnabled(true);
+        mRouter.setRoot(new TestController());
+        mRouter.pushController(RouterTransaction.builder(new TestController()).build());
+
+        Bundle outState = new Bundle();
+        mRouter.onActivitySaveInstanceState(mActivityController.get(), outState);
+        List<Bundle> savedEntries = new ArrayList<>(((CompactStateParceler)outState.getParcelable("Backstack.compactEntries")).getBundles());
+
+        Router restoredRouter = new Router();
+        restoredRouter.onRestoreInstanceState(outState);
+        Assert.assertTrue(restoredRouter.isSavedStateCachingEnabled());
+
+        // Restored Controllers reuse the state they were restored from until something changes
+        Bundle restoredOutState = new Bundle();
+        restoredRouter.onActivitySaveInstanceState(mActivityController.get(), restoredOutState);
+        List<Bundle> restoredEntries = ((CompactStateParceler)restoredOutState.getParcelable("Backstack.compactEntries")).getBundles();
+
+        Assert.assertEquals(savedEntries.size(), restoredEntries.size());
+        for (int i = 0; i < savedEntries.size(); i++) {
+            Assert.assertSame(savedEntries.get(i).getBundle("ControllerTransaction.controller.bundle"),
+                    restoredEntries.get(i).getBundle("ControllerTransaction.controller.bundle"));
+        }
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.KITKAT) // Keeps garbage collection from querying the app's tasks
+    public void testStateStoreRestore() throws IOException {
+        File directory = File.createTempFile("conductor", "test");
+        Assert.assertTrue(directory.delete());
+
+        Bundle args = new Bundle();
+        args.putByteArray("data", new byte[20000]);
+
+        Controller largeController = new TestController(args);
+        Controller topController = new TestController();
+        mRouter.setStateStore(new StateStore(directory, 10000));
+        mRouter.setRoot(largeController);
+        mRouter.pushController(RouterTransaction.builder(topController).build());
+
+        Bundle outState = new Bundle();
+        mRouter.onActivitySaveInstanceState(mActivityController.get(), outState);
+
+        File[] files = directory.listFiles();
+        Assert.assertEquals(1, files.length);
+
+        // Restoring without a StateStore still reads the file, then deletes it once it has been superseded
+        Router restoredRouter = new Router();
+        restoredRouter.onRestoreInstanceState(outState);
+        Assert.assertEquals(2, restoredRouter.getBackstackSize());
+        Assert.assertTrue(files[0].exists());
+
+        restoredRouter.onActivitySaveInstanceState(mActivityController.get(), new Bundle());
+        Assert.assertFalse(files[0].exists());
+
+        // Only the top Controller can be restored once the file is missing
+        Router fallbackRouter = new Router();
+        fallbackRouter.onRestoreInstanceState(outState);
+        Assert.assertEquals(1, fallbackRouter.getBackstackSize());
+        Assert.assertNotNull(fallbackRouter.getControllerWithInstanceId(topController.getInstanceId()));
+        Assert.assertNull(fallbackRouter.getControllerWithInstanceId(largeController.getInstanceId()));
+
+        Assert.assertTrue(directory.delete());
+    }
+
+    @Test
+    public void testStateSizeReport() {
+        Bundle args = new Bundle();
+        args.putByteArray("data", new byte[20000]);
+
+        Controller smallController = new TestController();
+        Controller largeController = new TestController(args);
+        mRouter.setRoot(smallController);
+        mRouter.pushController(RouterTransaction.builder(largeController).build());
+
+        final List<StateSizeReport> warnings = new ArrayList<>();
+        mRouter.setStateSizeWarningListener(new StateSizeReport.OnWarningListener() {
+            @Override
+            public void onStateSizeWarning(@NonNull Router router, @NonNull StateSizeReport report) {
+                warnings.add(report);
+            }
+        }, 100000, 10000);
+
+        mRouter.onActivitySaveInstanceState(mActivityController.get(), new Bundle());
+
+        StateSizeReport report = mRouter.getStateSizeReport();
+        Assert.assertNotNull(report);
+        Assert.assertEquals(1, warnings.size());
+        Assert.assertSame(report, warnings.get(0));
+        Assert.assertEquals(2, report.controllerSizes.size());
+        Assert.assertTrue(report.totalBytes > 20000);
+
+        List<StateSizeReport.ControllerSize> largeSizes = report.getControllersLargerThan(10000);
+        Assert.assertEquals(1, largeSizes.size());
+        Assert.assertEquals(largeController.getInstanceId(), largeSizes.get(0).instanceId);
+        Assert.assertTrue(largeSizes.get(0).argsBytes > 20000);
+        Assert.assertTrue(report.getBytesByClass().get(TestController.class.getCanonicalName()) > 20000);
+    }
+
+    @Test
+    public void testTrimMemory() {
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        TrimMemoryController controller3 = new TrimMemoryController();
+
+        mRouter.setHibernateOnTrimMemory(true);
+        mRouter.setRoot(controller1, "1");
+        mRouter.pushController(RouterTransaction.builder(controller2).tag("2").build());
+        mRouter.pushController(RouterTransaction.builder(controller3).tag("3").build());
+
+        mRouter.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        Assert.assertEquals(1, controller3.trimLevels.size());
+        Assert.assertNull(controller2.getView());
+        Assert.assertSame(controller1, mRouter.getControllerWithTag("1"));
+
+        mRouter.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+        Assert.assertEquals(2, controller3.trimLevels.size());
+        Assert.assertEquals(3, mRouter.getBackstackSize());
+        Assert.assertSame(controller3, mRouter.getControllerWithTag("3"));
+        Assert.assertTrue(controller1.isDestroyed());
+        Assert.assertTrue(controller2.isDestroyed());
+        Assert.assertFalse(controller3.isDestroyed());
+
+        // Hibernated entries are restored as new instances when needed
+        Controller restored1 = mRouter.getControllerWithTag("1");
+        Assert.assertNotSame(controller1, restored1);
+        Assert.assertEquals(controller1.getInstanceId(), restored1.getInstanceId());
+        Assert.assertSame(mRouter, restored1.getRouter());
+    }
+
+    @Test
+    public void testTrimMemoryWhenHidden() {
+        Controller controller1 = new TestController();
+        controller1.setRetainViewMode(RetainViewMode.RETAIN_DETACH);
+
+        mRouter.setRoot(controller1);
+        mRouter.pushController(RouterTransaction.builder(new TestController()).build());
+        View view1 = controller1.getView();
+        Assert.assertNotNull(view1);
+
+        // Leaving the foreground isn't memory pressure, so retained views stay
+        mRouter.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        Assert.assertSame(view1, controller1.getView());
+
+        mRouter.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        Assert.assertNull(controller1.getView());
+    }
+
+    @Test
+    public void testHibernationDepth() {
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        Controller controller3 = new TestController();
+        Controller controller4 = new TestController();
+
+        mRouter.setHibernationDepth(2);
+        mRouter.setRoot(controller1, "1");
+        mRouter.pushController(RouterTransaction.builder(controller2).tag("2").build());
+        mRouter.pushController(RouterTransaction.builder(controller3).tag("3").build());
+        mRouter.pushController(RouterTransaction.builder(controller4).tag("4").build());
+
+        Assert.assertEquals(4, mRouter.getBackstackSize());
+        Assert.assertSame(controller4, mRouter.getControllerWithTag("4"));
+        Assert.assertSame(controller3, mRouter.getControllerWithTag("3"));
+
+        mRouter.popCurrentController();
+        mRouter.popCurrentController();
+
+        Controller restored2 = mRouter.getControllerWithTag("2");
+        Assert.assertNotSame(controller2, restored2);
+        Assert.assertEquals(controller2.getInstanceId(), restored2.getInstanceId());
+        Assert.assertTrue(restored2.isAttached());
+        Assert.assertEquals(2, mRouter.getBackstackSize());
+
+        Controller restored1 = mRouter.getControllerWithInstanceId(controller1.getInstanceId());
+        Assert.assertNotSame(controller1, restored1);
+        Assert.assertSame(mRouter, restored1.getRouter());
+    }
+
+    @Test
+    public void testHibernationDestroysControllers() {
+        StatefulController controller1 = new StatefulController();
+        Controller childController = new TestController();
+        controller1.value = 42;
+
+        mRouter.setHibernationDepth(1);
+        mRouter.setRoot(controller1, "1");
+        controller1.addChildController(ChildControllerTransaction.builder(childController, TestController.VIEW_ID).build());
+        mRouter.pushController(RouterTransaction.builder(new TestController()).build());
+
+        // Nothing bound to a hibernated Controller's lifecycle may outlive it
+        Assert.assertTrue(controller1.isDestroyed());
+        Assert.assertTrue(childController.isDestroyed());
+
+        mRouter.popCurrentController();
+
+        StatefulController restored1 = (StatefulController)mRouter.getControllerWithTag("1");
+        Assert.assertNotSame(controller1, restored1);
+        Assert.assertFalse(restored1.isDestroyed());
+        Assert.assertTrue(restored1.isAttached());
+        Assert.assertEquals(42, restored1.value);
+        Assert.assertEquals(1, restored1.getChildControllers().size());
+        Assert.assertEquals(childController.getInstanceId(), restored1.getChildControllers().get(0).getInstanceId());
+    }
+
+    @Test
+    public void testPrefetch() {
+        CountingController controller1 = new CountingController();
+        final CountingController controller2 = new CountingController();
+
+        final AtomicInteger preCreateViewCalls = new AtomicInteger();
+        final AtomicInteger postCreateViewCalls = new AtomicInteger();
+        controller2.addLifecycleListener(new LifecycleListener() {
+            @Override
+            public void preCreateView(@NonNull Controller controller) {
+                // Listeners are notified before onCreateView is called in the background
+                Assert.assertEquals(0, controller2.createViewCount.get());
+                preCreateViewCalls.incrementAndGet();
+            }
+
+            @Override
+            public void postCreateView(@NonNull Controller controller, @NonNull View view) {
+                postCreateViewCalls.incrementAndGet();
+            }
+        });
+
+        mRouter.setRoot(controller1);
+        mRouter.prefetch(RouterTransaction.builder(controller2).build());
+        mRouter.pushController(RouterTransaction.builder(controller2).build());
+
+        // The prefetched view is handed over rather than created again
+        Assert.assertEquals(1, controller2.createViewCount.get());
+        Assert.assertEquals(1, preCreateViewCalls.get());
+        Assert.assertEquals(1, postCreateViewCalls.get());
+        Assert.assertTrue(controller2.isAttached());
+        Assert.assertNotNull(controller2.getView());
+
+        CountingController controller3 = new CountingController();
+        RouterTransaction transaction3 = RouterTransaction.builder(controller3).build();
+        mRouter.prefetch(transaction3);
+        mRouter.cancelPrefetch(transaction3);
+        mRouter.pushController(transaction3);
+
+        Assert.assertTrue(controller3.isAttached());
+        Assert.assertNotNull(controller3.getView());
+    }
+
+    @Test
+    public void testPrefetchStillRunning() throws InterruptedException {
+        BlockingController controller = new BlockingController();
+        ViewGroup container = new FrameLayout(mActivityController.get());
+        ViewPrefetcher.Request request = new ViewPrefetcher.Request(controller, LayoutInflater.from(container.getContext()), container);
+
+        Thread thread = new Thread(request);
+        thread.start();
+        Assert.assertTrue(controller.started.await(5, TimeUnit.SECONDS));
+
+        // The view is created on the main thread instead of waiting for the background thread
+        Assert.assertNull(request.take());
+
+        controller.release.countDown();
+        thread.join();
+        Assert.assertNull(request.take());
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.LOLLIPOP)
+    public void testTransitionCaptureScoping() {
+        // Only start values are captured until the next frame is drawn, so these count the Views in the container
+        // before each change: the "from" View and its two children
+        Assert.assertEquals(3, pushWithTransition(1, false, false));
+
+        // Only the "from" and "to" root Views
+        Assert.assertEquals(2, pushWithTransition(2, true, false));
+
+        // One of the "from" View's children has been excluded by its Controller
+        Assert.assertEquals(2, pushWithTransition(3, false, true));
+    }
+
+    @Test
+    public void testChangeMetrics() {
+        ChangeMetricsAggregator aggregator = new ChangeMetricsAggregator();
+        long millisNanos = 1000000;
+
+        ChangeMetricsRecorder recorder = new ChangeMetricsRecorder(aggregator, new HorizontalChangeHandler(), new TestController(), null, true, 0);
+        recorder.onViewInflated(true, 5 * millisNanos);
+        recorder.onFrame(20 * millisNanos);
+        recorder.onFrame(37 * millisNanos);
+
+        // 50ms between frames means two were dropped
+        recorder.onFrame(87 * millisNanos);
+
+        Assert.assertTrue(aggregator.getSummariesByHandlerClass().isEmpty());
+        recorder.onChangeCompleted(90 * millisNanos);
+
+        ChangeMetricsAggregator.Summary handlerSummary = aggregator.getSummariesByHandlerClass().get(HorizontalChangeHandler.class.getName());
+        Assert.assertEquals(1, handlerSummary.getChangeCount());
+        Assert.assertEquals(3, handlerSummary.getFrameCount());
+        Assert.assertEquals(1, handlerSummary.getSlowFrameCount());
+        Assert.assertEquals(2, handlerSummary.getDroppedFrameCount());
+        Assert.assertEquals(20 * millisNanos, handlerSummary.getAverageFirstFrameNanos());
+        Assert.assertEquals(90 * millisNanos, handlerSummary.getAverageDurationNanos());
+
+        ChangeMetricsAggregator.Summary controllerSummary = aggregator.getSummariesByControllerClass().get(TestController.class.getName());
+        Assert.assertEquals(5 * millisNanos, controllerSummary.getAverageCreateViewNanos());
+
+        // Changes that complete before any frame is drawn are reported with the first one
+        recorder = new ChangeMetricsRecorder(aggregator, new HorizontalChangeHandler(), new TestController(), null, true, 0);
+        recorder.onChangeCompleted(millisNanos);
+        Assert.assertEquals(1, aggregator.getSummariesByHandlerClass().get(HorizontalChangeHandler.class.getName()).getChangeCount());
+        recorder.onFrame(16 * millisNanos);
+        Assert.assertEquals(2, aggregator.getSummariesByHandlerClass().get(HorizontalChangeHandler.class.getName()).getChangeCount());
+
+        // Changes that never complete stop being watched and are reported as incomplete
+        recorder = new ChangeMetricsRecorder(aggregator, new HorizontalChangeHandler(), new TestController(), null, true, 0);
+        recorder.onFrame(16 * millisNanos);
+        recorder.onFrame(ChangeMetrics.MAX_RECORDING_NANOS - millisNanos);
+        Assert.assertEquals(2, aggregator.getSummariesByHandlerClass().get(HorizontalChangeHandler.class.getName()).getChangeCount());
+        recorder.onFrame(ChangeMetrics.MAX_RECORDING_NANOS);
+
+        handlerSummary = aggregator.getSummariesByHandlerClass().get(HorizontalChangeHandler.class.getName());
+        Assert.assertEquals(3, handlerSummary.getChangeCount());
+        Assert.assertEquals(1, handlerSummary.getIncompleteChangeCount());
+        Assert.assertEquals((90 + 1) * millisNanos / 2, handlerSummary.getAverageDurationNanos());
+
+        recorder.onChangeCompleted(ChangeMetrics.MAX_RECORDING_NANOS + millisNanos);
+        Assert.assertEquals(3, aggregator.getSummariesByHandlerClass().get(HorizontalChangeHandler.class.getName()).getChangeCount());
+    }
+
+    @Test
+    public void testChangeQueue() {
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        Controller controller3 = new TestController();
+        Controller controller4 = new TestController();
+
+        mRouter.setChangeQueueEnabled(true);
+        mRouter.setRoot(controller1);
+
+        ManualChangeHandler handler2 = new ManualChangeHandler();
+        mRouter.pushController(RouterTransaction.builder(controller2).pushChangeHandler(handler2).build());
+        Assert.assertNotNull(handler2.changeListener);
+
+        // Pushed while the change to controller2 is still running, so they're queued and coalesced
+        ManualChangeHandler handler4 = new ManualChangeHandler();
+        mRouter.pushController(RouterTransaction.builder(controller3).pushChangeHandler(new ManualChangeHandler()).build());
+        mRouter.pushController(RouterTransaction.builder(controller4).pushChangeHandler(handler4).build());
+
+        Assert.assertNull(controller3.getView());
+        Assert.assertNull(handler4.changeListener);
+        Assert.assertEquals(4, mRouter.getBackstackSize());
+
+        handler2.complete();
+        ShadowLooper.idleMainLooper();
+
+        Assert.assertNull(controller3.getView());
+        Assert.assertSame(controller2.getView(), handler4.from);
+        Assert.assertSame(controller4.getView(), handler4.to);
+
+        // Handlers that can be fast-forwarded are completed as soon as they're superseded
+        handler4.fastForwards = true;
+        mRouter.popCurrentController();
+
+        Assert.assertNull(handler4.changeListener);
+        Assert.assertEquals(3, mRouter.getBackstackSize());
+    }
+
+    @Test
+    public void testSynchronousMeasurement() {
+        FrameLayout container = new FrameLayout(mActivityController.get());
+        container.setId(TestController.VIEW_ID + 1);
+        container.layout(0, 0, 100, 200);
+
+        Router router = Conductor.attachRouter(mActivityController.get(), container, null);
+        router.setRoot(new TestController());
+
+        // The container is never drawn, so without synchronous measurement the view would never be laid out
+        Controller controller = new TestController();
+        HorizontalChangeHandler changeHandler = new HorizontalChangeHandler();
+        changeHandler.setMeasuresSynchronously(true);
+        router.pushController(RouterTransaction.builder(controller).pushChangeHandler(changeHandler).build());
+
+        Assert.assertEquals(100, controller.getView().getWidth());
+        Assert.assertEquals(200, controller.getView().getHeight());
+    }
+
+    @Test
+    public void testHardwareLayers() {
+        FrameLayout container = new FrameLayout(mActivityController.get());
+        container.setId(TestController.VIEW_ID + 1);
+        container.layout(0, 0, 100, 200);
+
+        Router router = Conductor.attachRouter(mActivityController.get(), container, null);
+        Controller rootController = new TestController();
+        rootController.setRetainViewMode(RetainViewMode.RETAIN_DETACH);
+        router.setRoot(rootController);
+
+        View rootView = rootController.getView();
+        rootView.layout(0, 0, 100, 200);
+        rootView.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
+
+        RecordingHorizontalChangeHandler changeHandler = new RecordingHorizontalChangeHandler();
+        changeHandler.setMeasuresSynchronously(true);
+        changeHandler.setUsesHardwareLayers(true);
+
+        // Both Views are on hardware layers while the change runs, and get their previous layer types back once it ends
+        Controller controller = new TestController();
+        router.pushController(RouterTransaction.builder(controller)
+                .pushChangeHandler(changeHandler)
+                .popChangeHandler(changeHandler)
+                .build());
+        View view = controller.getView();
+
+        Assert.assertEquals(View.LAYER_TYPE_HARDWARE, rootView.getLayerType());
+        Assert.assertEquals(View.LAYER_TYPE_HARDWARE, view.getLayerType());
+
+        changeHandler.completeImmediately();
+        Assert.assertEquals(View.LAYER_TYPE_SOFTWARE, rootView.getLayerType());
+        Assert.assertEquals(View.LAYER_TYPE_NONE, view.getLayerType());
+
+        // The same goes for a change that gets cancelled
+        router.popCurrentController();
+        Assert.assertEquals(View.LAYER_TYPE_HARDWARE, rootView.getLayerType());
+        Assert.assertEquals(View.LAYER_TYPE_HARDWARE, view.getLayerType());
+
+        changeHandler.animators.get(changeHandler.animators.size() - 1).cancel();
+        Assert.assertEquals(View.LAYER_TYPE_SOFTWARE, rootView.getLayerType());
+        Assert.assertEquals(View.LAYER_TYPE_NONE, view.getLayerType());
+    }
+
+    @Test
+    public void testSnapshotFromView() {
+        FrameLayout container = new FrameLayout(mActivityController.get());
+        container.setId(TestController.VIEW_ID + 1);
+        container.layout(0, 0, 100, 200);
+
+        Router router = Conductor.attachRouter(mActivityController.get(), container, null);
+        Controller controller1 = new TestController();
+        router.setRoot(controller1);
+
+        View view1 = controller1.getView();
+        FrameLayout.LayoutParams layoutParams = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+        layoutParams.leftMargin = 10;
+        view1.setLayoutParams(layoutParams);
+        view1.layout(10, 0, 100, 200);
+
+        HorizontalChangeHandler changeHandler = new HorizontalChangeHandler();
+        changeHandler.setSnapshotsFromView(true);
+        router.pushController(RouterTransaction.builder(new TestController()).pushChangeHandler(changeHandler).build());
+
+        // The real view is removed right away, while a snapshot of it animates out
+        Assert.assertNull(view1.getParent());
+
+        // The snapshot stays where the view was through the container's own layout passes
+        View snapshotView = container.getChildAt(0);
+        Assert.assertNotSame(view1, snapshotView);
+        Assert.assertEquals(10, snapshotView.getLeft());
+        Assert.assertEquals(90, snapshotView.getWidth());
+
+        container.measure(View.MeasureSpec.makeMeasureSpec(100, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(200, View.MeasureSpec.EXACTLY));
+        container.layout(0, 0, 100, 200);
+        Assert.assertEquals(10, snapshotView.getLeft());
+        Assert.assertEquals(90, snapshotView.getWidth());
+        Assert.assertEquals(200, snapshotView.getHeight());
+    }
+
+    @Test
+    public void testReusableAnimators() {
+        FrameLayout container = new FrameLayout(mActivityController.get());
+        container.setId(TestController.VIEW_ID + 1);
+        container.layout(0, 0, 100, 200);
+
+        Router router = Conductor.attachRouter(mActivityController.get(), container, null);
+        Controller rootController = new TestController();
+        router.setRoot(rootController);
+        rootController.getView().layout(0, 0, 100, 200);
+
+        RecordingHorizontalChangeHandler changeHandler = new RecordingHorizontalChangeHandler();
+        changeHandler.setMeasuresSynchronously(true);
+
+        int listenerCount = -1;
+        for (int i = 0; i < 3; i++) {
+            router.pushController(RouterTransaction.builder(new TestController())
+                    .pushChangeHandler(changeHandler)
+                    .popChangeHandler(changeHandler)
+                    .build());
+            changeHandler.completeImmediately();
+
+            router.popCurrentController();
+            changeHandler.completeImmediately();
+
+            if (i == 0) {
+                listenerCount = changeHandler.animators.get(0).getListeners().size();
+            }
+        }
+
+        // After the first change, every push and pop reused the same Animator without adding listeners to it
+        Assert.assertEquals(6, changeHandler.animators.size());
+        for (Animator animator : changeHandler.animators) {
+            Assert.assertSame(changeHandler.animators.get(0), animator);
+        }
+        Assert.assertEquals(listenerCount, changeHandler.animators.get(0).getListeners().size());
+        Assert.assertEquals(0, rootController.getView().getTranslationX(), 0);
+        Assert.assertEquals(1, router.getBackstackSize());
+    }
+
+    @Test
+    public void testPooledAnimators() {
+        ReusableAnimator.clearPool();
+
+        FrameLayout container = new FrameLayout(mActivityController.get());
+        container.setId(TestController.VIEW_ID + 1);
+        container.layout(0, 0, 100, 200);
+
+        Router router = Conductor.attachRouter(mActivityController.get(), container, null);
+        router.setRoot(new TestController());
+        router.getBackstack().get(0).controller.getView().layout(0, 0, 100, 200);
+
+        // Transactions normally get new handlers, which should still share Animators
+        List<RecordingHorizontalChangeHandler> changeHandlers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RecordingHorizontalChangeHandler pushHandler = new RecordingHorizontalChangeHandler();
+            RecordingHorizontalChangeHandler popHandler = new RecordingHorizontalChangeHandler();
+            pushHandler.setMeasuresSynchronously(true);
+            popHandler.setMeasuresSynchronously(true);
+            changeHandlers.add(pushHandler);
+            changeHandlers.add(popHandler);
+
+            router.pushController(RouterTransaction.builder(new TestController())
+                    .pushChangeHandler(pushHandler)
+                    .popChangeHandler(popHandler)
+                    .build());
+            pushHandler.completeImmediately();
+
+            router.popCurrentController();
+            popHandler.completeImmediately();
+        }
+
+        Animator animator = changeHandlers.get(0).animators.get(0);
+        for (RecordingHorizontalChangeHandler changeHandler : changeHandlers) {
+            Assert.assertEquals(1, changeHandler.animators.size());
+            Assert.assertSame(animator, changeHandler.animators.get(0));
+        }
+
+        // Released Animators don't keep the listeners of the handlers that used them
+        Assert.assertEquals(1, animator.getListeners().size());
+        Assert.assertEquals(1, router.getBackstackSize());
+    }
+
+    @Test
+    public void testInteractivePop() {
+        FrameLayout container = new FrameLayout(mActivityController.get());
+        container.setId(TestController.VIEW_ID + 1);
+        container.layout(0, 0, 100, 200);
+
+        Router router = Conductor.attachRouter(mActivityController.get(), container, null);
+        final Controller controller1 = new TestController();
+        final Controller controller2 = new TestController();
+        router.setRoot(controller1);
+
+        RecordingHorizontalChangeHandler changeHandler = new RecordingHorizontalChangeHandler();
+        changeHandler.setMeasuresSynchronously(true);
+        router.pushController(RouterTransaction.builder(controller2)
+                .pushChangeHandler(changeHandler)
+                .popChangeHandler(changeHandler)
+                .build());
+        changeHandler.completeImmediately();
+
+        final List<String> changes = new ArrayList<>();
+        LifecycleListener changeRecorder = new LifecycleListener() {
+            @Override
+            public void onChangeStart(@NonNull Controller controller, @NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeType changeType) {
+                changes.add((controller == controller1 ? "1 " : "2 ") + "start " + changeType);
+            }
+
+            @Override
+            public void onChangeEnd(@NonNull Controller controller, @NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeType changeType) {
+                changes.add((controller == controller1 ? "1 " : "2 ") + "end " + changeType);
+            }
+        };
+        controller1.addLifecycleListener(changeRecorder);
+        controller2.addLifecycleListener(changeRecorder);
+
+        // A cancelled pop settles back and leaves the backstack alone
+        ProgressiveChangeHandler progressiveHandler = router.startInteractivePop();
+        Assert.assertSame(changeHandler, progressiveHandler);
+        Assert.assertNull(router.startInteractivePop());
+        View view1 = controller1.getView();
+        Assert.assertEquals(container, view1.getParent());
+        Assert.assertEquals(Arrays.asList("1 start POP_ENTER", "2 start POP_EXIT"), changes);
+
+        progressiveHandler.setProgress(0.5f);
+        Assert.assertEquals(-50, view1.getTranslationX(), 1);
+
+        progressiveHandler.cancel();
+        changeHandler.completeImmediately();
+        Assert.assertNull(view1.getParent());
+        Assert.assertEquals(0, view1.getTranslationX(), 0);
+        Assert.assertEquals(2, router.getBackstackSize());
+        Assert.assertEquals(container, controller2.getView().getParent());
+
+        // The cancelled change still ends, and the View that was only created for it is released
+        Assert.assertEquals(Arrays.asList("1 start POP_ENTER", "2 start POP_EXIT", "2 end POP_EXIT", "1 end POP_ENTER"), changes);
+        Assert.assertNull(controller1.getView());
+        changes.clear();
+
+        // A committed pop finishes the same animation and only then updates the backstack
+        View view2 = controller2.getView();
+        progressiveHandler = router.startInteractivePop();
+        progressiveHandler.setProgress(0.75f);
+        Assert.assertEquals(2, router.getBackstackSize());
+        Assert.assertEquals(Arrays.asList("1 start POP_ENTER", "2 start POP_EXIT"), changes);
+
+        int animatorCount = changeHandler.animators.size();
+        progressiveHandler.commit();
+        changeHandler.completeImmediately();
+        Assert.assertEquals(animatorCount, changeHandler.animators.size());
+        Assert.assertEquals(1, router.getBackstackSize());
+        Assert.assertNull(router.getControllerWithInstanceId(controller2.getInstanceId()));
+        Assert.assertNull(view2.getParent());
+        Assert.assertEquals(container, controller1.getView().getParent());
+        Assert.assertEquals(0, controller1.getView().getTranslationX(), 0);
+
+        // Committing finishes the change that already started instead of starting another one
+        Assert.assertEquals(Arrays.asList("1 start POP_ENTER", "2 start POP_EXIT", "2 end POP_EXIT", "1 end POP_ENTER"), changes);
+    }
+
+    @Test
+    public void testDeferredDestruction() {
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        Controller controller3 = new TestController();
+
+        mRouter.setDeferControllerDestruction(true);
+
+        mRouter.setRoot(controller1);
+        mRouter.pushController(RouterTransaction.builder(controller2).build());
+        mRouter.pushController(RouterTransaction.builder(controller3).build());
+
+        mRouter.popToRoot();
+
+        Assert.assertEquals(1, mRouter.getBackstackSize());
+        Assert.assertFalse(controller2.isDestroyed());
+        Assert.assertNull(mRouter.getControllerWithInstanceId(controller2.getInstanceId()));
+
+        mActivityController.destroy();
+
+        Assert.assertTrue(controller2.isDestroyed());
+        Assert.assertTrue(controller3.isDestroyed());
+    }
+
+    private int pushWithTransition(int containerId, boolean scopedToRootViews, boolean excludeChild) {
+        Activity activity = mActivityController.get();
+        FrameLayout container = new FrameLayout(activity);
+        container.setId(containerId);
+        Router router = Conductor.attachRouter(activity, container, null);
+
+        Controller fromController = new TransitionController();
+        if (excludeChild) {
+            fromController.getTransitionExclusions().excludeId(TransitionController.CHILD_ID);
+        }
+        router.setRoot(fromController);
+
+        // Transitions are only started in containers that have been laid out
+        container.measure(View.MeasureSpec.makeMeasureSpec(100, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(100, View.MeasureSpec.EXACTLY));
+        container.layout(0, 0, 100, 100);
+
+        AutoTransitionChangeHandler changeHandler = new AutoTransitionChangeHandler();
+        changeHandler.setScopedToRootViews(scopedToRootViews);
+        router.pushController(RouterTransaction.builder(new TransitionController()).pushChangeHandler(changeHandler).build());
+
+        return changeHandler.getCapturedViewCount();
+    }
+
+    private List<Bundle> saveBackstackEntries() {
+        Bundle savedState = new Bundle();
+        mRouter.onActivitySaveInstanceState(mActivityController.get(), savedState);
+
+        CompactStateParceler entries = savedState.getParcelable("Backstack.compactEntries");
+        return entries.getBundles();
+    }
+
+    public static class CountingController extends TestController {
+
+        final AtomicInteger createViewCount = new AtomicInteger();
+
+        @NonNull
+        @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+            createViewCount.incrementAndGet();
+            return super.onCreateView(inflater, container);
+        }
+    }
+
+    public static class StatefulController extends TestController {
+
+        private static final String KEY_VALUE = "StatefulController.value";
+
+        int value;
+
+        @Override
+        protected void onSaveInstanceState(@NonNull Bundle outState) {
+            outState.putInt(KEY_VALUE, value);
+        }
+
+        @Override
+        protected void onRestoreInstanceState(@NonNull Bundle savedInstanceState) {
+            value = savedInstanceState.getInt(KEY_VALUE);
+        }
+    }
+
+    public static class TransitionController extends TestController {
+
+        @IdRes static final int CHILD_ID = 2343;
+
+        @NonNull
+        @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+            FrameLayout view = (FrameLayout)super.onCreateView(inflater, container);
+
+            View child = new View(inflater.getContext());
+            child.setId(CHILD_ID);
+            view.addView(child);
+            view.addView(new View(inflater.getContext()));
+
+            return view;
+        }
+    }
+
+    public static class BlockingController extends TestController {
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @NonNull
+        @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return super.onCreateView(inflater, container);
+        }
+    }
+
+    public static class ManualChangeHandler extends ControllerChangeHandler {
+
+        boolean fastForwards;
+        View from;
+        View to;
+        ViewGroup container;
+        ControllerChangeCompletedListener changeListener;
+
+        @Override
+        public void performChange(@NonNull ViewGroup container, View from, View to, boolean isPush, @NonNull ControllerChangeCompletedListener changeListener) {
+            this.container = container;
+            this.from = from;
+            this.to = to;
+            this.changeListener = changeListener;
+
+            if (to != null && to.getParent() == null) {
+                container.addView(to);
+            }
+        }
+
+        @Override
+        public void completeImmediately() {
+            if (fastForwards) {
+                complete();
+            }
+        }
+
+        void complete() {
+            if (from != null) {
+                container.removeView(from);
+            }
+
+            ControllerChangeCompletedListener listener = changeListener;
+            changeListener = null;
+            listener.onChangeCompleted();
+        }
+    }
+
+    public static class RecordingHorizontalChangeHandler extends HorizontalChangeHandler {
+
+        final List<Animator> animators = new ArrayList<>();
+
+        @Override
+        protected Animator getAnimator(@NonNull ViewGroup container, View from, View to, boolean isPush, boolean toAddedToContainer) {
+            Animator animator = super.getAnimator(container, from, to, isPush, toAddedToContainer);
+            animators.add(animator);
+            return animator;
+        }
+    }
+
+    public static class TrimMemoryController extends TestController {
+
+        final List<Integer> trimLevels = new ArrayList<>();
+
+        @Override
+        protected void onTrimMemory(int level) {
+            trimLevels.add(level);
+        }
+    }
 }
@@ -0,0 +1,104 @@
+package com.bluelinelabs.conductor;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class StateStoreTests {
+
+    private static final int TASK_ID = 7;
+
+    private File mDirectory;
+    private StateStore mStateStore;
+
+    @Before
+    public void setup() throws IOException {
+        mDirectory = File.createTempFile("conductor", "test");
+        Assert.assertTrue(mDirectory.delete());
+
+        mStateStore = new StateStore(mDirectory, 16);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        byte[] data = new byte[64 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte)i;
+        }
+
+        File file = mStateStore.write(data, TASK_ID);
+
+        Assert.assertTrue(file.exists());
+        Assert.assertEquals(mDirectory, file.getParentFile());
+        Assert.assertTrue(Arrays.equals(data, StateStore.read(file)));
+    }
+
+    @Test
+    public void testReadMissingOrTruncated() throws IOException {
+        Assert.assertNull(StateStore.read(new File(mDirectory, "missing.state")));
+
+        File file = mStateStore.write(new byte[] { 1, 2, 3, 4 }, TASK_ID);
+
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(5);
+        out.close();
+
+        Assert.assertNull(StateStore.read(file));
+    }
+
+    @Test
+    public void testRelease() throws IOException {
+        File file = mStateStore.write(new byte[] { 1, 2, 3 }, TASK_ID);
+        StateStore.release(file);
+
+        Assert.assertFalse(file.exists());
+        Assert.assertNull(StateStore.read(file));
+    }
+
+    @Test
+    public void testGarbageCollection() throws IOException {
+        File inUseFile = mStateStore.write(new byte[] { 1 }, TASK_ID);
+        File existingTaskFile = createFile((TASK_ID + 1) + "_existing.state");
+        File finishedTaskFile = createFile((TASK_ID + 2) + "_finished.state");
+        File unknownTaskFile = createFile("unknown.state");
+
+        // Files are only deleted once their task is known to be gone, no matter how old they are
+        Assert.assertTrue(existingTaskFile.setLastModified(0));
+
+        mStateStore.collectGarbage(Collections.singleton(TASK_ID + 1));
+
+        Assert.assertTrue(inUseFile.exists());
+        Assert.assertTrue(existingTaskFile.exists());
+        Assert.assertFalse(finishedTaskFile.exists());
+        Assert.assertTrue(unknownTaskFile.exists());
+
+        StateStore.release(inUseFile);
+    }
+
+    private File createFile(String name) throws IOException {
+        File file = new File(mDirectory, name);
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(1);
+        out.close();
+        return file;
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.bluelinelabs.conductor;
 
+import android.os.Bundle;
 import android.support.annotation.IdRes;
 import android.support.annotation.NonNull;
 import android.view.LayoutInflater;
@@ -13,6 +14,10 @@ public class TestController extends Controller {
 
     public TestController() { }
 
+    public TestController(Bundle args) {
+        super(args);
+    }
+
     @NonNull
     @Override
     protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
@@ -1,31 +1,32 @@
 package com.bluelinelabs.conductor.demo.changehandler;
 
 import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.support.annotation.NonNull;
-import android.util.Property;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.animation.AccelerateDecelerateInterpolator;
 
 import com.bluelinelabs.conductor.changehandler.AnimatorChangeHandler;
+import com.bluelinelabs.conductor.changehandler.ReusableAnimator;
 
 public class FlipChangeHandler extends AnimatorChangeHandler {
 
     private static final long DEFAULT_ANIMATION_DURATION = 300;
 
+    // The fade runs for half of the flip, starting a third of the way through
+    private static final float ALPHA_START_FRACTION = 1 / 3f;
+    private static final float ALPHA_END_FRACTION = ALPHA_START_FRACTION + 1 / 2f;
+
     public enum FlipDirection {
-        LEFT(-180, 180, View.ROTATION_Y),
-        RIGHT(180, -180, View.ROTATION_Y),
-        UP(-180, 180, View.ROTATION_X),
-        DOWN(180, -180, View.ROTATION_X);
+        LEFT(-180, 180, ReusableAnimator.ROTATION_Y),
+        RIGHT(180, -180, ReusableAnimator.ROTATION_Y),
+        UP(-180, 180, ReusableAnimator.ROTATION_X),
+        DOWN(180, -180, ReusableAnimator.ROTATION_X);
 
         final int inStartRotation;
         final int outEndRotation;
-        final Property<View, Float> property;
+        final int property;
 
-        FlipDirection(int inStartRotation, int outEndRotation, Property<View, Float> property) {
+        FlipDirection(int inStartRotation, int outEndRotation, int property) {
             this.inStartRotation = inStartRotation;
             this.outEndRotation = outEndRotation;
             this.property = property;
@@ -54,31 +55,21 @@ public class FlipChangeHandler extends AnimatorChangeHandler {
 
     @Override
     protected Animator getAnimator(@NonNull ViewGroup container, View from, View to, boolean isPush, boolean toAddedToContainer) {
-        AnimatorSet animatorSet = new AnimatorSet();
+        ReusableAnimator animator = obtainReusableAnimator();
 
         if (to != null) {
             to.setAlpha(0);
 
-            ObjectAnimator rotation = ObjectAnimator.ofFloat(to, mFlipDirection.property, mFlipDirection.inStartRotation, 0).setDuration(mAnimationDuration);
-            rotation.setInterpolator(new AccelerateDecelerateInterpolator());
-            animatorSet.play(rotation);
-
-            Animator alpha = ObjectAnimator.ofFloat(to, View.ALPHA, 1).setDuration(mAnimationDuration / 2);
-            alpha.setStartDelay(mAnimationDuration / 3);
-            animatorSet.play(alpha);
+            animator.animate(to, mFlipDirection.property, mFlipDirection.inStartRotation, 0);
+            animator.animate(to, ReusableAnimator.ALPHA, 0, 1, ALPHA_START_FRACTION, ALPHA_END_FRACTION);
         }
 
         if (from != null) {
-            ObjectAnimator rotation = ObjectAnimator.ofFloat(from, mFlipDirection.property, 0, mFlipDirection.outEndRotation).setDuration(mAnimationDuration);
-            rotation.setInterpolator(new AccelerateDecelerateInterpolator());
-            animatorSet.play(rotation);
-
-            Animator alpha = ObjectAnimator.ofFloat(from, View.ALPHA, 0).setDuration(mAnimationDuration / 2);
-            alpha.setStartDelay(mAnimationDuration / 3);
-            animatorSet.play(alpha);
+            animator.animate(from, mFlipDirection.property, 0, mFlipDirection.outEndRotation);
+            animator.animate(from, ReusableAnimator.ALPHA, from.getAlpha(), 0, ALPHA_START_FRACTION, ALPHA_END_FRACTION);
         }
 
-        return animatorSet;
+        return animator.getAnimator().setDuration(mAnimationDuration);
     }
 
     @Override